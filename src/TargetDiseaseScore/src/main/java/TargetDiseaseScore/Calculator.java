@@ -6,22 +6,113 @@ import java.util.Arrays;
 public class Calculator {
     private Calculator() {}
 
+    // below this size a subrange is simply sorted
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
     static double median(double[] l) {
         if (l == null)
             throw new IllegalArgumentException("Attempt to calculate median value on a null list");
-        if (l.length == 0)
+
+        return median(l, l.length);
+    }
+
+    static double median(double[] l, int length) {
+        return medianAndTopScores(l, length, new double[0]);
+    }
+
+    /**
+     * Calculates the median of the first length values and fills topScores
+     * with the largest topScores.length values in descending order.
+     * Uses selection instead of a full sort, the values are reordered in place.
+     */
+    static double medianAndTopScores(double[] l, int length, double[] topScores) {
+        if (l == null)
+            throw new IllegalArgumentException("Attempt to calculate median value on a null list");
+        if (length <= 0)
             throw new IllegalArgumentException("Attempt to calculate median value on an empty list");
+        if (length > l.length || topScores.length > length)
+            throw new IllegalArgumentException("Attempt to calculate median value beyond the list size");
+
+        // upper middle element goes to its sorted position,
+        // everything on its left is not greater, on its right not smaller
+        int middle = length / 2;
+        select(l, 0, length, middle);
 
-        // sort first
-        Arrays.sort(l);
+        double median;
+        if (length % 2 == 0) {
+            // lower middle element is the max of the left part
+            double lower = l[0];
+            for (int i = 1; i < middle; i++) {
+                lower = Math.max(lower, l[i]);
+            }
 
-        if (l.length % 2 == 0) {
             // this is to avoid double precision errors for simple score computation
-            return BigDecimal.valueOf(l[l.length/2])
-                    .add(BigDecimal.valueOf(l[l.length/2 - 1]))
+            median = BigDecimal.valueOf(l[middle])
+                    .add(BigDecimal.valueOf(lower))
                     .divide(BigDecimal.valueOf(2.0)).doubleValue();
         } else {
-            return l[l.length/2];
+            median = l[middle];
+        }
+
+        if (topScores.length > 0) {
+            // partial selection of the top part only within the side it falls into
+            int top = length - topScores.length;
+            if (top > middle)
+                select(l, middle + 1, length, top);
+            else if (top < middle)
+                select(l, 0, middle, top);
+
+            Arrays.sort(l, top, length);
+            for (int i = 0; i < topScores.length; i++) {
+                topScores[i] = l[length - 1 - i];
+            }
         }
+
+        return median;
+    }
+
+    // introselect: quickselect with a sort fallback when partitioning goes badly
+    private static void select(double[] a, int from, int to, int k) {
+        int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                Arrays.sort(a, from, to);
+                return;
+            }
+
+            double pivot = medianOfThree(a[from], a[from + (to - from) / 2], a[to - 1]);
+
+            // three-way partition: [from, lt) < pivot, [lt, gt) == pivot, [gt, to) > pivot
+            int lt = from, i = from, gt = to;
+            while (i < gt) {
+                if (a[i] < pivot) {
+                    swap(a, lt++, i++);
+                } else if (a[i] > pivot) {
+                    swap(a, i, --gt);
+                } else {
+                    i++;
+                }
+            }
+
+            if (k < lt)
+                to = lt;
+            else if (k >= gt)
+                from = gt;
+            else
+                return;
+        }
+
+        Arrays.sort(a, from, to);
+    }
+
+    private static double medianOfThree(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        double t = a[i];
+        a[i] = a[j];
+        a[j] = t;
     }
 }
@@ -2,8 +2,23 @@ package TargetDiseaseScore;
 
 import TargetDiseaseScore.cli.CommandLineParameters;
 import TargetDiseaseScore.cli.ProgressReporter;
+import TargetDiseaseScore.data.AssociationOrder;
+import TargetDiseaseScore.data.EvidenceAccumulator;
+import TargetDiseaseScore.data.IdColumn;
+import TargetDiseaseScore.data.IdDictionary;
+import TargetDiseaseScore.data.MissingReference;
 import TargetDiseaseScore.dto.*;
+import TargetDiseaseScore.io.ArrowFileWriter;
+import TargetDiseaseScore.io.BinaryCache;
 import TargetDiseaseScore.io.JsonIO;
+import TargetDiseaseScore.io.JsonSource;
+import TargetDiseaseScore.io.JsonSources;
+import TargetDiseaseScore.io.TargetPairSegments;
+import TargetDiseaseScore.search.MinHashSearch;
+import TargetDiseaseScore.search.OverlapIndex;
+import TargetDiseaseScore.search.PairSimilarity;
+import TargetDiseaseScore.search.PairWeighting;
+import TargetDiseaseScore.search.TargetOverlapSearch;
 import org.apache.commons.cli.ParseException;
 
 import java.io.IOException;
@@ -12,13 +27,17 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.util.*;
-import java.util.function.BinaryOperator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static TargetDiseaseScore.Calculator.median;
+import static TargetDiseaseScore.Calculator.medianAndTopScores;
 
 public class TargetDiseaseScoreMain {
 
@@ -58,9 +77,9 @@ public class TargetDiseaseScoreMain {
         // json mapper
         JsonIO jsonIO = new JsonIO();
 
-        // filter for *.json files
+        // filter for *.json and *.json.gz files
         final PathMatcher jsonMatch = FileSystems.getDefault()
-                .getPathMatcher("glob:*.json");
+                .getPathMatcher("glob:*.{json,json.gz}");
         // filter for json files
         Predicate<Path> jsonFilter = path ->
                 jsonMatch.matches(path.getFileName());
@@ -68,112 +87,396 @@ public class TargetDiseaseScoreMain {
         // progress reporter
         ProgressReporter pr = new ProgressReporter();
 
-
-        //
-        // test part 1
-        //
+        // executor for the stages of the job,
+        // each stage does its bulk work on parallel streams
+        ExecutorService stages = Executors.newFixedThreadPool(4, r -> {
+            Thread thread = new Thread(r, "stage");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         pr.mark();
 
-        // extract evidence map and generate overall scores
+        try {
+            //
+            // test part 1
+            //
+
+            // extract evidence map and generate overall scores
+
+            CompletableFuture<List<TDComposite>> scoresStage = CompletableFuture.supplyAsync(() -> pr.stage
+                    ("extracting evidence map and process scores"
+                            , "target-disease overall association scores", () -> {
+
+                        var evidence = clp.isCacheEnabled()
+                                ? processor.getCachedEvidenceAccumulator
+                                (clp.getPathToEvidence(), jsonFilter
+                                        , clp.getMaxExactScores(), clp.getNumberOfTopScores(), jsonIO)
+                                : processor.getEvidenceAccumulator
+                                (clp.getPathToEvidence(), jsonFilter
+                                        , clp.getMaxExactScores(), clp.getNumberOfTopScores(), jsonIO);
+
+                        // generate overall scores
+                        return processor.generateOverallScores(evidence, clp.getNumberOfTopScores());
+                    }, List::size), stages);
+
+            // dense target and disease IDs of the overall scores, for the semi-join and the joint query
+
+            CompletableFuture<IdColumn> targetIdsStage = scoresStage.thenApplyAsync(overallScores -> IdColumn
+                    .of(overallScores.size(), i -> overallScores.get(i).getTargetId()), stages);
+            CompletableFuture<IdColumn> diseaseIdsStage = scoresStage.thenApplyAsync(overallScores -> IdColumn
+                    .of(overallScores.size(), i -> overallScores.get(i).getDiseaseId()), stages);
+
+            // targets and diseases start right away, the IDs they semi-join against
+            // are applied once they are known, with full load there is no semi-join
+            CompletableFuture<IdDictionary> neededTargetsSource = clp.isFullLoad()
+                    ? CompletableFuture.completedFuture(null) : targetIdsStage.thenApply(IdColumn::getDictionary);
+            CompletableFuture<IdDictionary> neededDiseasesSource = clp.isFullLoad()
+                    ? CompletableFuture.completedFuture(null) : diseaseIdsStage.thenApply(IdColumn::getDictionary);
+
+
+            // extract targets data map [TargetID] - [Target]
+
+            CompletableFuture<Map<String, Target>> targetsStage = CompletableFuture.supplyAsync
+                    (() -> pr.stage("extracting targets", "targets", () -> {
+
+                        // semi-join: only targets referenced by overall scores are kept, all without it
+                        return clp.isCacheEnabled()
+                                ? processor.getCachedSemiJoinedMap
+                                (clp.getPathToTargets(), jsonFilter, "target"
+                                        , "id", "approvedSymbol", neededTargetsSource, Target::new, jsonIO)
+                                : processor.getSemiJoinedMap
+                                (clp.getPathToTargets(), jsonFilter
+                                        , "id", "approvedSymbol", neededTargetsSource, Target::new, jsonIO);
+                    }, Map::size), stages);
+
+
+            // extract diseases data map [DiseaseID] - [Disease]
+
+            CompletableFuture<Map<String, Disease>> diseasesStage = CompletableFuture.supplyAsync
+                    (() -> pr.stage("extracting diseases", "diseases", () -> {
+
+                        // semi-join: only diseases referenced by overall scores are kept, all without it
+                        return clp.isCacheEnabled()
+                                ? processor.getCachedSemiJoinedMap
+                                (clp.getPathToDiseases(), jsonFilter, "disease"
+                                        , "id", "name", neededDiseasesSource, Disease::new, jsonIO)
+                                : processor.getSemiJoinedMap
+                                (clp.getPathToDiseases(), jsonFilter
+                                        , "id", "name", neededDiseasesSource, Disease::new, jsonIO);
+                    }, Map::size), stages);
+
+
+            // create a joint table and save as *.json file once all three inputs are ready
+
+            CompletableFuture<List<TDAssociation>> jointStage = CompletableFuture
+                    .allOf(scoresStage, targetIdsStage, diseaseIdsStage, targetsStage, diseasesStage)
+                    .thenApplyAsync(ready -> pr.stage("generating joint Association/Target/Disease data set"
+                            , "overall association scores", () -> {
+
+                        List<TDAssociation> jointData = processor.jointQuery
+                                (scoresStage.join(), targetIdsStage.join(), diseaseIdsStage.join()
+                                        , targetsStage.join(), diseasesStage.join(), clp.getMissingReference());
+
+                        // compressed partitions for parallel readers, or a single file
+                        // encoded in parallel chunks and written in order
+                        if (clp.getNumberOfPartitions() > 0) {
+                            jsonIO.ObjToJsonPartitions(jointData, clp.getPathToOutput().resolve("joint_dataset")
+                                    , clp.getNumberOfPartitions()
+                                    , clp.isPartitionByHash() ? TDAssociation::getTargetId : null);
+                        } else {
+                            jsonIO.ObjToJsonFile(jointData, clp.getPathToOutput().resolve("joint_dataset.json"));
+                        }
 
-        var evidenceMap = processor.getMapOfGroups
-                (clp.getPathToEvidence(), jsonFilter
-                        , TDEvidence.class, e -> e.getTargetId() + e.getDiseaseId()
-                        , jsonIO );
+                        // columnar copy for readers that memory map it
+                        if (clp.isArrow())
+                            processor.writeArrow(jointData, clp.getPathToOutput().resolve("joint_dataset.arrow"));
+
+                        return jointData;
+                    }, List::size), stages);
+
+            //
+            // test part 2
+            //
+
+            // dense target/disease index shared by all pair searches
+
+            CompletableFuture<OverlapIndex> indexStage = scoresStage.thenApplyAsync(OverlapIndex::of, stages);
+
+            // count or write target pairs that share a min number of disease connections,
+            // runs next to targets/diseases loading and the joint data set
+
+            CompletableFuture<Long> pairsStage = indexStage.thenApplyAsync
+                    (index -> pr.stage("searching for targets with shared disease connections"
+                            , "target-target pairs with at least "
+                                    + clp.getMinSharedNumber() + " shared connections"
+                                    + (clp.isApproximate() ? " (approximate)" : "")
+                            , () -> {
+
+                                // candidate pairs from MinHash signatures instead of the exact search
+                                if (clp.isApproximate()) {
+                                    return new MinHashSearch(index, clp.getLshBands(), clp.getLshRows())
+                                            .countPairs(clp.getMinSharedNumber(), clp.isLshVerify());
+                                }
+
+                                var search = new TargetOverlapSearch(index);
+                                long numberOfPairs = 0;
+
+                                // one pass counts pairs for every number of shared diseases
+                                if (clp.isSharedHistogram() || !clp.isWritePairs()) {
+                                    long[] histogram = search.histogram(clp.getMinSharedNumber());
+                                    numberOfPairs = TargetOverlapSearch.countAtLeast
+                                            (histogram, clp.getMinSharedNumber());
+
+                                    if (clp.isSharedHistogram()) {
+                                        Path outputFile = clp.getPathToOutput().resolve("shared_diseases_histogram.json");
+                                        try (var writer = Files.newBufferedWriter(outputFile)) {
+                                            jsonIO.ObjToJson(processor.getSharedDiseasesBins
+                                                    (histogram, clp.getMinSharedNumber()), writer);
+                                        } catch (IOException ex) {
+                                            throw new RuntimeException
+                                                    ("Writing json histogram: something bad happened with IO...", ex);
+                                        }
+                                    }
+                                }
+
+                                // stream the pairs out as they are found
+                                if (clp.isWritePairs()) {
+                                    numberOfPairs = processor.writeTargetPairs(search, clp.getMinSharedNumber()
+                                            , clp.getWeighting(), clp.getPathToOutput().resolve("target_pairs"));
+                                }
+
+                                return numberOfPairs;
+                            }
+                            , Long::longValue), stages);
+
+            // the most similar target pairs, next to the pair count
+
+            CompletableFuture<List<TargetOverlapPair>> topPairsStage = clp.getNumberOfTopPairs() == 0
+                    ? CompletableFuture.completedFuture(List.of())
+                    : indexStage.thenApplyAsync(index -> pr.stage("searching for the most similar targets"
+                            , "most similar target-target pairs by "
+                                    + clp.getSimilarity().name().toLowerCase(Locale.ROOT)
+                            , () -> {
+
+                                List<TargetOverlapPair> topPairs = processor.getTopTargetPairs
+                                        (index, clp.getNumberOfTopPairs(), clp.getSimilarity());
+
+                                Path outputFile = clp.getPathToOutput().resolve("top_target_pairs.json");
+                                try (var writer = Files.newBufferedWriter(outputFile)) {
+                                    jsonIO.ObjToJson(topPairs, writer);
+                                } catch (IOException ex) {
+                                    throw new RuntimeException
+                                            ("Writing json top pairs: something bad happened with IO...", ex);
+                                }
+
+                                return topPairs;
+                            }
+                            , List::size), stages);
+
+            // disease pairs that share a min number of targets, over the same index transposed
+
+            CompletableFuture<Long> diseasePairsStage = clp.getMinSharedTargets() == 0
+                    ? CompletableFuture.completedFuture(0L)
+                    : indexStage.thenApplyAsync(index -> pr.stage("searching for diseases with shared targets"
+                            , "disease-disease pairs with at least "
+                                    + clp.getMinSharedTargets() + " shared targets"
+                            , () -> processor.countDiseasePairsWithSharedTargets(index, clp.getMinSharedTargets())
+                            , Long::longValue), stages);
+
+            CompletableFuture.allOf(jointStage, pairsStage, topPairsStage, diseasePairsStage).join();
+
+        } catch (CompletionException ex) {
+            // report the failure of the stage itself
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw ex;
+        } finally {
+            stages.shutdown();
+        }
 
-        // generate overall scores
-        var overallScores = processor
-                .generateOverallScores(evidenceMap, clp.getNumberOfTopScores());
+        pr.report("the whole job");
 
-        pr.report("extracting evidence map and process scores"
-                , "target-disease overall association scores", overallScores.size());
+        System.out.println();
+    }
 
+    public <T> Map<String, List<T>> getMapOfGroups
+            (Path directory, Predicate<Path> jsonFilter
+                    , Class<T> type, Function<T, String> groupKeyMapper
+                    , JsonIO jsonIO) {
 
-        // extract targets data map [TargetID] - [Target]
+        // map each source of each matched file to objects and group
+        return listJsonSources(directory, jsonFilter)
+                .parallelStream()
+                .flatMap(source -> readObjects(source, type, jsonIO).stream())
+                .collect(Collectors.groupingByConcurrent(groupKeyMapper));
+    }
 
-        Map<String, Target> targetMap = processor.getMapOfObjects
-                (clp.getPathToTargets(), jsonFilter
-                        , Target.class, Target::getId, jsonIO);
+    public EvidenceAccumulator getEvidenceAccumulator
+            (Path directory, Predicate<Path> jsonFilter, JsonIO jsonIO) {
+        return getEvidenceAccumulator(directory, jsonFilter, Integer.MAX_VALUE, 0, jsonIO);
+    }
 
-        pr.report("extracting targets"
-                , "targets", targetMap.size());
+    public EvidenceAccumulator getEvidenceAccumulator
+            (Path directory, Predicate<Path> jsonFilter
+                    , int maxExactScores, int numberOfTopScores, JsonIO jsonIO) {
 
+        // stream evidence from each source of each matched file into its own accumulator and merge
+        return listJsonSources(directory, jsonFilter)
+                .parallelStream()
+                .map(source -> {
+                    var accumulator = new EvidenceAccumulator(maxExactScores, numberOfTopScores);
+
+                    try (var in = source.open()) {
+                        jsonIO.readEvidence(in, accumulator.getTargets()
+                                , accumulator.getDiseases(), accumulator::add);
+                    } catch (IOException ex) {
+                        throw new RuntimeException
+                                ("Extracting evidence from a json file: problem with IO: ", ex);
+                    }
+
+                    return accumulator;
+                })
+                .reduce(EvidenceAccumulator::merge)
+                .orElseGet(EvidenceAccumulator::new);
+    }
 
-        // extract diseases data map [DiseaseID] - [Disease]
+    public EvidenceAccumulator getCachedEvidenceAccumulator
+            (Path directory, Predicate<Path> jsonFilter
+                    , int maxExactScores, int numberOfTopScores, JsonIO jsonIO) {
 
-        Map<String, Disease> diseaseMap = processor.getMapOfObjects
-                (clp.getPathToDiseases(), jsonFilter
-                        , Disease.class, Disease::getId, jsonIO);
+        Path cacheFile = BinaryCache.cacheFile(directory, "evidence");
+        String fingerprint = fingerprint(directory, jsonFilter);
 
-        pr.report("extracting diseases"
-                , "diseases", diseaseMap.size());
+        try {
+            var cached = BinaryCache
+                    .readEvidence(cacheFile, fingerprint, maxExactScores, numberOfTopScores);
+            if (cached.isPresent())
+                return cached.get();
+        } catch (IOException ex) {
+            System.out.println("Ignoring unreadable cache " + cacheFile + ": " + ex.getMessage());
+        }
 
+        var evidence = getEvidenceAccumulator
+                (directory, jsonFilter, maxExactScores, numberOfTopScores, jsonIO);
 
-        // create a joint table and save as *.json file
+        try {
+            if (!BinaryCache.writeEvidence(cacheFile, fingerprint, evidence))
+                System.out.println("Evidence cache is not written: not all scores are kept with the max exact limit");
+        } catch (IOException ex) {
+            System.out.println("Could not write cache " + cacheFile + ": " + ex.getMessage());
+        }
 
-        List<TDAssociation> jointData =
-                processor.jointQuery(overallScores, targetMap, diseaseMap);
+        return evidence;
+    }
 
-        Path outputFile = clp.getPathToOutput().resolve("joint_dataset.json");
-        try (var writer = Files.newBufferedWriter(outputFile)) {
-            jsonIO.ObjToJson(jointData, writer);
-        } catch(IOException ex) {
-            throw new RuntimeException("Writing json output: something bad happened with IO...", ex);
-        }
+    /**
+     * Loads objects as key-value projections of json files.
+     *
+     * @param neededKeys only objects with these keys are loaded, all objects if null
+     */
+    public <T> Map<String, T> getProjectedMap
+            (Path directory, Predicate<Path> jsonFilter
+                    , String keyField, String valueField, IdDictionary neededKeys
+                    , BiFunction<String, String, T> factory, JsonIO jsonIO) {
+        return getSemiJoinedMap(directory, jsonFilter, keyField, valueField
+                , CompletableFuture.completedFuture(neededKeys), factory, jsonIO);
+    }
 
-        pr.report("generating joint Association/Target/Disease data set"
-                , "overall association scores", jointData.size());
+    /**
+     * Loads objects as key-value projections of json files while the needed keys are still computed.
+     * Files opened once the keys are known are filtered while parsing, the others once loading ends.
+     *
+     * @param neededKeys only objects with these keys are kept, all objects if it completes with null
+     */
+    public <T> Map<String, T> getSemiJoinedMap
+            (Path directory, Predicate<Path> jsonFilter
+                    , String keyField, String valueField, CompletableFuture<IdDictionary> neededKeys
+                    , BiFunction<String, String, T> factory, JsonIO jsonIO) {
 
-        //
-        // test part 2
-        //
+        // stream each source of each matched file and keep the projection only
+        Map<String, T> objects = listJsonSources(directory, jsonFilter)
+                .parallelStream()
+                .flatMap(source -> {
+                    List<Map.Entry<String, T>> projections = new ArrayList<>();
+                    try (var in = source.open()) {
+                        jsonIO.readProjection(in, keyField, valueField, neededKeys.getNow(null)
+                                , (key, value) -> projections.add(Map.entry(key, factory.apply(key, value))));
+                    } catch (IOException ex) {
+                        throw new RuntimeException
+                                ("Extracting objects from a json file: problem with IO: ", ex);
+                    }
+                    return projections.stream();
+                })
+                .collect(Collectors.toConcurrentMap(Map.Entry::getKey, Map.Entry::getValue, (o1, o2) -> o1));
+
+        // objects parsed before the needed keys were known
+        IdDictionary needed = neededKeys.join();
+        if (needed != null)
+            objects.keySet().removeIf(key -> needed.indexOf(key) < 0);
+
+        return objects;
+    }
 
-        // search for target pairs that share a min number of disease connections
+    public <T> Map<String, T> getCachedProjectedMap
+            (Path directory, Predicate<Path> jsonFilter, String cacheName
+                    , String keyField, String valueField, IdDictionary neededKeys
+                    , BiFunction<String, String, T> factory, JsonIO jsonIO) {
+        return getCachedSemiJoinedMap(directory, jsonFilter, cacheName, keyField, valueField
+                , CompletableFuture.completedFuture(neededKeys), factory, jsonIO);
+    }
 
-        List<TargetOverlapPair> targetOverlapPairList
-                =  processor.getTargetPairsWithSharedDiseases(overallScores, clp.getMinSharedNumber());
+    /**
+     * Cached key-value projections, the cache is read while the needed keys are still computed.
+     *
+     * @param neededKeys only objects with these keys are kept, all objects if it completes with null
+     */
+    public <T> Map<String, T> getCachedSemiJoinedMap
+            (Path directory, Predicate<Path> jsonFilter, String cacheName
+                    , String keyField, String valueField, CompletableFuture<IdDictionary> neededKeys
+                    , BiFunction<String, String, T> factory, JsonIO jsonIO) {
 
-        pr.report("searching for targets with shared disease connections"
-                , "target-target pairs with at least "
-                        + clp.getMinSharedNumber() + " shared connections", targetOverlapPairList.size());
+        Path cacheFile = BinaryCache.cacheFile(directory, cacheName);
+        String fingerprint = fingerprint(directory, jsonFilter);
 
-        System.out.println();
-    }
+        List<String[]> columns = null;
+        try {
+            columns = BinaryCache.readColumns(cacheFile, fingerprint).orElse(null);
+        } catch (IOException ex) {
+            System.out.println("Ignoring unreadable cache " + cacheFile + ": " + ex.getMessage());
+        }
 
-    public <T> Map<String, List<T>> getMapOfGroups
-            (Path directory, Predicate<Path> jsonFilter
-                    , Class<T> type, Function<T, String> groupKeyMapper
-                    , JsonIO jsonIO) {
+        if (columns == null) {
+            // the cache keeps the projection of all objects, so it serves any needed keys
+            var all = new ArrayList<>(getProjectedMap(directory, jsonFilter
+                    , keyField, valueField, null, (key, value) -> new String[]{key, value}, jsonIO).values());
 
-        // merger for the final map across multiple files
-        BinaryOperator<List<T>> merger = (o1, o2) -> {
-            o1.addAll(o2);
-            return o1;
-        };
-
-        // traverse all matched files in the directory
-        try( var files = Files.list(directory).filter(jsonFilter)) {
-
-            // map each string to an object and collect
-            return files
-                    .parallel()
-                    .flatMap(path -> {
-                        try (var lines = Files.lines(path)) {
-                            return lines.parallel()
-                                    .map(l -> jsonIO.stringToObj(l, type))
-                                    .collect(Collectors
-                                            .groupingByConcurrent(groupKeyMapper))
-                                    . entrySet().stream();
-                        } catch (IOException ex) {
-                            throw new RuntimeException
-                                    ("Extracting objects from a json file: problem with IO: ", ex);
-                        }
-                    }).parallel()
-                    .collect(Collectors
-                            .toConcurrentMap(Map.Entry::getKey, Map.Entry::getValue, merger));
+            columns = List.of(all.stream().map(kv -> kv[0]).toArray(String[]::new)
+                    , all.stream().map(kv -> kv[1]).toArray(String[]::new));
+
+            try {
+                BinaryCache.writeColumns(cacheFile, fingerprint, columns);
+            } catch (IOException ex) {
+                System.out.println("Could not write cache " + cacheFile + ": " + ex.getMessage());
+            }
+        }
+
+        String[] keys = columns.get(0);
+        String[] values = columns.get(1);
+        IdDictionary needed = neededKeys.join();
+
+        return IntStream.range(0, keys.length)
+                .parallel()
+                .filter(i -> needed == null || needed.indexOf(keys[i]) >= 0)
+                .boxed()
+                .collect(Collectors.toConcurrentMap(i -> keys[i], i -> factory.apply(keys[i], values[i])));
+    }
+
+    private String fingerprint(Path directory, Predicate<Path> jsonFilter) {
+        try {
+            return BinaryCache.fingerprint(directory, jsonFilter);
         } catch (IOException e) {
-            throw new RuntimeException("Mapping json files to objects: something bad happened with IO: ", e);
+            throw new RuntimeException("Listing json files: something bad happened with IO: ", e);
         }
     }
 
@@ -181,92 +484,110 @@ public class TargetDiseaseScoreMain {
             (Path directory, Predicate<Path> jsonFilter
              , Class<T> type, Function<T, String> keyMapper, JsonIO jsonIO) {
 
-        // traverse all matched files in the directory
-        try( var files = Files.list(directory).filter(jsonFilter)) {
-
-            // map each string to an object and collect
-            return files
-                    .parallel()
-                    .flatMap(path -> {
-                        try (var lines = Files.lines(path)) {
-                            return lines.parallel()
-                                    .map(l -> jsonIO.stringToObj(l, type))
-                                    .collect(Collectors
-                                            .toConcurrentMap(keyMapper, Function.identity()))
-                                    .entrySet().stream();
-                        } catch (IOException ex) {
-                            throw new RuntimeException
-                                    ("Extracting objects from a json file: problem with IO: ", ex);
-                        }
-                    }).parallel()
-                    .collect(Collectors
-                            .toConcurrentMap(Map.Entry::getKey, Map.Entry::getValue));
+        // map each source of each matched file to objects and collect
+        return listJsonSources(directory, jsonFilter)
+                .parallelStream()
+                .flatMap(source -> readObjects(source, type, jsonIO).stream())
+                .collect(Collectors.toConcurrentMap(keyMapper, Function.identity()));
+    }
+
+    private List<JsonSource> listJsonSources(Path directory, Predicate<Path> jsonFilter) {
+        try {
+            return JsonSources.list(directory, jsonFilter);
         } catch (IOException e) {
-            throw new RuntimeException("Mapping json files to objects: something bad happened with IO: ", e);
+            throw new RuntimeException("Mapping json files to sources: something bad happened with IO: ", e);
         }
     }
 
+    private <T> List<T> readObjects(JsonSource source, Class<T> type, JsonIO jsonIO) {
+        List<T> objects = new ArrayList<>();
+        try (var in = source.open()) {
+            jsonIO.readObjects(in, type, objects::add);
+        } catch (IOException ex) {
+            throw new RuntimeException
+                    ("Extracting objects from a json file: problem with IO: ", ex);
+        }
+        return objects;
+    }
+
     public List<TargetOverlapPair> getTargetPairsWithSharedDiseases
             (List<TDComposite> inTDCompositeAssociation,  int minOfSharedDiseases) {
 
-        //
-        // prep work
-        //
+        // build the forward and inverted disease indices and count co-occurrences
+        return new TargetOverlapSearch(OverlapIndex.of(inTDCompositeAssociation))
+                .findPairs(minOfSharedDiseases);
+    }
 
-        // group associations by TargetId
-        var mapTarget = inTDCompositeAssociation
-                .parallelStream()
-                .collect(Collectors.groupingByConcurrent(TDComposite::getTargetId));
+    public List<TargetOverlapPair> getApproximateTargetPairsWithSharedDiseases
+            (List<TDComposite> inTDCompositeAssociation, int minOfSharedDiseases, int bands, int rows) {
 
-        // generate a list of [Target] - [Disease Set] pairs ordered by number of diseases in the set
-        List<TargetDiseaseSet> targetDiseaseSetList = mapTarget.entrySet()
-                .parallelStream()
-                // do not need to consider targets with fewer connections than min shared number
-                .filter(e -> e.getValue().size() >= minOfSharedDiseases)
-                .sorted((o1, o2) -> o1.getValue().size() - o2.getValue().size() )
-                .map(e -> new TargetDiseaseSet(e.getKey()
-                        , e.getValue()
-                        .stream()
-                        .map(TDComposite::getDiseaseId)
-                        .collect(Collectors.toUnmodifiableSet())))
-                .collect(Collectors.toList());
+        // LSH candidates from MinHash signatures, verified exactly
+        return new MinHashSearch(OverlapIndex.of(inTDCompositeAssociation), bands, rows)
+                .findPairs(minOfSharedDiseases);
+    }
 
+    public List<TargetOverlapPair> getTopTargetPairs
+            (OverlapIndex index, int numberOfPairs, PairSimilarity similarity) {
 
-        // generate a list of Search Cells for each Target
-        // TargetsToCheck includes only TargetDiseaseSets that
-        // come after the current target in the ordered targetDiseaseSetList
-        // to avoid duplication of target-target pairs
-        List<TargetDiseaseSearchCell> searchCellList = IntStream.rangeClosed(0, targetDiseaseSetList.size() - 2)
-                .mapToObj(i -> new TargetDiseaseSearchCell(
-                        targetDiseaseSetList.get(i).getTargetId()
-                        , targetDiseaseSetList.get(i).getDiseases()
-                        , targetDiseaseSetList.subList(i+1, targetDiseaseSetList.size())))
-                .collect(Collectors.toList());
+        // bounded heaps with pruning on the numbers of diseases
+        return new TargetOverlapSearch(index).topPairs(numberOfPairs, similarity);
+    }
 
-        //
-        // search
-        //
+    public List<DiseaseOverlapPair> getDiseasePairsWithSharedTargets
+            (OverlapIndex index, int minOfSharedTargets) {
 
-        // search for overlaps within each search cell
-        List<TargetOverlapPair> targetOverlapPairList = searchCellList
-                .parallelStream()
-                .map(cell -> cell.getTargetsToCheck().stream()
-                        .filter(nextSet -> cell.getDiseases().stream()
-                                .filter(cellDisease -> nextSet.getDiseases().contains(cellDisease))
-                                .count() >= minOfSharedDiseases)
-                        .map(overlappingSet -> {
-                            var intersection = new HashSet<String>(overlappingSet.getDiseases());
-                            intersection.retainAll(cell.getDiseases());
-                            return new TargetOverlapPair
-                                    (cell.getTargetId()
-                                            , overlappingSet.getTargetId()
-                                            , intersection);
-                        })
-                        .collect(Collectors.toList()))
-                .flatMap(List::stream)
+        // the same search with diseases in the role of targets
+        return new TargetOverlapSearch(index.transpose())
+                .findPairs(minOfSharedTargets)
+                .stream()
+                .map(pair -> new DiseaseOverlapPair
+                        (pair.getTargetIdA(), pair.getTargetIdB(), pair.getDiseasesShared()))
                 .collect(Collectors.toList());
+    }
+
+    public long countDiseasePairsWithSharedTargets(OverlapIndex index, int minOfSharedTargets) {
+        return new TargetOverlapSearch(index.transpose()).countPairs(minOfSharedTargets);
+    }
+
+    public long writeTargetPairs(TargetOverlapSearch search, int minOfSharedDiseases
+            , PairWeighting weighting, Path directory) {
+
+        // every worker streams its pairs into its own segment file
+        try (var segments = new TargetPairSegments(directory)) {
+            return search.forEachPair(minOfSharedDiseases, weighting, segments::newSegment);
+        }
+    }
+
+    public List<SharedDiseasesBin> getSharedDiseasesBins(long[] histogram, int minOfSharedDiseases) {
+
+        // one row per number of shared diseases from min shared up to the largest overlap found,
+        // with the running count from the top
+        var bins = new ArrayList<SharedDiseasesBin>();
+        long atLeast = TargetOverlapSearch.countAtLeast(histogram, minOfSharedDiseases);
+
+        int maxShared = histogram.length - 1;
+        while (maxShared > 0 && histogram[maxShared] == 0)
+            maxShared--;
+
+        for (int k = Math.max(minOfSharedDiseases, 1); k <= maxShared; k++) {
+            bins.add(new SharedDiseasesBin(k, histogram[k], atLeast));
+            atLeast -= histogram[k];
+        }
+
+        return bins;
+    }
 
-        return targetOverlapPairList;
+    public void writeArrow(List<TDAssociation> associations, Path file) {
+
+        // ids and names dictionary encoded, scores as float64 columns
+        new ArrowFileWriter(associations.size())
+                .addStrings("targetId", i -> associations.get(i).getTargetId())
+                .addStrings("diseaseId", i -> associations.get(i).getDiseaseId())
+                .addDoubles("median", i -> associations.get(i).getMedian())
+                .addDoubleLists("top3", i -> associations.get(i).getTop3())
+                .addStrings("approvedSymbol", i -> associations.get(i).getApprovedSymbol())
+                .addStrings("name", i -> associations.get(i).getName())
+                .write(file);
     }
 
     public List<TDAssociation> jointQuery
@@ -274,21 +595,80 @@ public class TargetDiseaseScoreMain {
                     , Map<String, Target> targetMap
                     , Map<String, Disease> diseaseMap) {
 
+        return jointQuery(overallList
+                , IdColumn.of(overallList.size(), i -> overallList.get(i).getTargetId())
+                , IdColumn.of(overallList.size(), i -> overallList.get(i).getDiseaseId())
+                , targetMap, diseaseMap, MissingReference.REPORT);
+    }
+
+    /**
+     * Joint query over dense IDs: targets and diseases are resolved once per distinct ID,
+     * each row then takes its symbol and name by array index.
+     *
+     * @param targetIds  target IDs of the overall scores by row
+     * @param diseaseIds disease IDs of the overall scores by row
+     * @param missing    what to do with rows whose target or disease is not in the maps
+     */
+    public List<TDAssociation> jointQuery
+            (List<TDComposite> overallList, IdColumn targetIds, IdColumn diseaseIds
+                    , Map<String, Target> targetMap, Map<String, Disease> diseaseMap
+                    , MissingReference missing) {
+
+        List<Target> targets = targetIds.resolve(targetMap);
+        List<Disease> diseases = diseaseIds.resolve(diseaseMap);
+
+        if (missing == MissingReference.REPORT) {
+            reportMissing("targets", targetIds, targets);
+            reportMissing("diseases", diseaseIds, diseases);
+        }
+
+        // rows left after dropping those with missing references
+        int[] rows = IntStream.range(0, overallList.size())
+                .filter(row -> missing != MissingReference.DROP
+                        || (targets.get(targetIds.getIndex(row)) != null
+                        && diseases.get(diseaseIds.getIndex(row)) != null))
+                .toArray();
+
+        // by median, ties by targetId then diseaseId, so the output is the same on every run;
+        // ID ranks come from the ID columns, so no strings are compared per row
+        int[] targetRanks = targetIds.getSortedRanks();
+        int[] diseaseRanks = diseaseIds.getSortedRanks();
+        int[] order = AssociationOrder.byMedian(rows.length
+                , i -> overallList.get(rows[i]).getMedianScore()
+                , i -> targetRanks[targetIds.getIndex(rows[i])], targetRanks.length
+                , i -> diseaseRanks[diseaseIds.getIndex(rows[i])], diseaseRanks.length);
+
         // joint query for three tables
-        List<TDAssociation> listOfAssociations = overallList
-                .stream()
-                .map(c -> new TDAssociation(
-                        c.getTargetId()
-                        , c.getDiseaseId()
-                        , c.getMedianScore()
-                        , c.getTopScores()
-                        , targetMap.get(c.getTargetId()).getApprovedSymbol()
-                        , diseaseMap.get(c.getDiseaseId()).getName()
-                ))
-                .sorted(Comparator.comparingDouble(TDAssociation::getMedian))
+        return Arrays.stream(order)
+                .parallel()
+                .map(i -> rows[i])
+                .mapToObj(row -> {
+                    Target target = targets.get(targetIds.getIndex(row));
+                    Disease disease = diseases.get(diseaseIds.getIndex(row));
+
+                    TDComposite c = overallList.get(row);
+                    return new TDAssociation(
+                            c.getTargetId()
+                            , c.getDiseaseId()
+                            , c.getMedianScore()
+                            , c.getTopScores()
+                            , target == null ? null : target.getApprovedSymbol()
+                            , disease == null ? null : disease.getName());
+                })
                 .collect(Collectors.toList());
+    }
 
-        return listOfAssociations;
+    private void reportMissing(String what, IdColumn ids, List<?> resolved) {
+        List<String> missingIds = IntStream.range(0, resolved.size())
+                .filter(index -> resolved.get(index) == null)
+                .mapToObj(ids.getDictionary()::get)
+                .sorted()
+                .collect(Collectors.toList());
+
+        if (!missingIds.isEmpty())
+            System.out.println("Missing " + what + " referenced by overall scores: " + missingIds.size()
+                    + " " + missingIds.subList(0, Math.min(10, missingIds.size()))
+                    + (missingIds.size() > 10 ? "..." : ""));
     }
 
     public List<TDComposite> generateOverallScores
@@ -298,28 +678,62 @@ public class TargetDiseaseScoreMain {
         // that includes median of scores and top 3 scores
         var composites =  evidenceMap.values()
                 .parallelStream()
-                .map(e -> new TDComposite(
-                        e.get(0).getTargetId(),
-                        e.get(0).getDiseaseId(),
-                        median(e.stream()
-                                .mapToDouble(TDEvidence::getScore)
-                                .toArray()),
-                        e.stream()
-                                .map(TDEvidence::getScore)
-                                .sorted(Comparator.reverseOrder())
-                                .limit(numberOfTopScores)
-                                .collect(Collectors.toList())
-                ))
+                .map(e -> composite(e.get(0).getTargetId(), e.get(0).getDiseaseId()
+                        , e.stream().mapToDouble(TDEvidence::getScore).toArray()
+                        , e.size(), numberOfTopScores))
                 .collect(Collectors.toList());
 
         return composites;
     }
-}
 
+    public List<TDComposite> generateOverallScores
+            (EvidenceAccumulator evidence, int numberOfTopScores) {
+
+        // process each association straight from its scores buffer
+        var composites = IntStream.range(0, evidence.size())
+                .parallel()
+                .mapToObj(a -> {
+                    if (!evidence.isExact(a))
+                        return boundedComposite(evidence, a, numberOfTopScores);
+
+                    // the buffer belongs to the accumulator, selection reorders it in place
+                    return composite(evidence.getTargetId(a), evidence.getDiseaseId(a)
+                            , evidence.getScores(a), evidence.getCount(a), numberOfTopScores);
+                })
+                .collect(Collectors.toList());
 
+        return composites;
+    }
 
+    private TDComposite boundedComposite(EvidenceAccumulator evidence, int association, int numberOfTopScores) {
+        if (numberOfTopScores > evidence.getNumberOfTopScores())
+            throw new IllegalArgumentException("Only " + evidence.getNumberOfTopScores()
+                    + " top scores are tracked for associations beyond the exact limit");
 
+        // top scores are tracked exactly, the median comes from the sketch
+        double[] top = evidence.getTopScores(association);
 
+        List<Double> topScores = new ArrayList<>(Math.min(numberOfTopScores, top.length));
+        for (int i = 0; i < top.length && topScores.size() < numberOfTopScores; i++) {
+            topScores.add(top[i]);
+        }
 
+        return new TDComposite(evidence.getTargetId(association), evidence.getDiseaseId(association)
+                , evidence.getApproximateMedian(association), topScores);
+    }
+
+    private TDComposite composite
+            (String targetId, String diseaseId, double[] scores, int count, int numberOfTopScores) {
+
+        // median and top scores in one selection pass over the primitive scores
+        double[] top = new double[Math.min(numberOfTopScores, count)];
+        double medianScore = medianAndTopScores(scores, count, top);
 
+        List<Double> topScores = new ArrayList<>(top.length);
+        for (double score : top) {
+            topScores.add(score);
+        }
 
+        return new TDComposite(targetId, diseaseId, medianScore, topScores);
+    }
+}
@@ -1,14 +1,35 @@
 package TargetDiseaseScore.cli;
 
+import TargetDiseaseScore.data.MissingReference;
+import TargetDiseaseScore.search.MinHashSearch;
+import TargetDiseaseScore.search.PairSimilarity;
+import TargetDiseaseScore.search.PairWeighting;
 import org.apache.commons.cli.*;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Locale;
 
 public class CommandLineParameters {
 
     private int numberOfTopScores = 3;
     private int minNumberOfSharedDiseases = 2;
+    private int maxExactScores = Integer.MAX_VALUE;
+    private boolean cacheEnabled;
+    private boolean fullLoad;
+    private boolean sharedHistogram;
+    private boolean writePairs;
+    private int lshBands;
+    private int lshRows;
+    private boolean lshVerify;
+    private int numberOfTopPairs;
+    private int minNumberOfSharedTargets;
+    private PairSimilarity similarity = PairSimilarity.OVERLAP;
+    private PairWeighting weighting = PairWeighting.SHARED;
+    private int numberOfPartitions;
+    private boolean partitionByHash;
+    private boolean arrow;
+    private MissingReference missingReference = MissingReference.REPORT;
     private Path pathToTargets;
     private Path pathToDiseases;
     private Path pathToEvidence;
@@ -20,7 +41,7 @@ public class CommandLineParameters {
             .argName("targets_dir")
             .required()
             .hasArg()
-            .desc("directory that contains targets *.json files")
+            .desc("directory that contains targets *.json or *.json.gz files")
             .build();
 
     private final Option diseasesDir = Option.builder()
@@ -29,7 +50,7 @@ public class CommandLineParameters {
             .argName("diseases_dir")
             .required()
             .hasArg()
-            .desc("directory that contains diseases *.json files")
+            .desc("directory that contains diseases *.json or *.json.gz files")
             .build();
 
     private final Option evidenceDir = Option.builder()
@@ -38,7 +59,7 @@ public class CommandLineParameters {
             .argName("evidence_dir")
             .required()
             .hasArg()
-            .desc("directory that contains evidence *.json files")
+            .desc("directory that contains evidence *.json or *.json.gz files")
             .build();
 
     private final Option outputDir = Option.builder()
@@ -70,6 +91,127 @@ public class CommandLineParameters {
             .desc("number of top scores for overall statistics")
             .build();
 
+    private final Option maxExact = Option.builder()
+            .option("mx")
+            .longOpt("maxexact")
+            .argName("max_exact_scores")
+            .type(Integer.class)
+            .hasArg()
+            .desc("max number of raw scores kept per association, larger associations get an approximate median"
+                    + " from a bounded-memory sketch (default: keep all scores)")
+            .build();
+
+    private final Option cache = Option.builder()
+            .option("c")
+            .longOpt("cache")
+            .desc("keep parsed inputs in binary cache files next to the input files"
+                    + " and reuse them while the input files do not change")
+            .build();
+
+    private final Option fullLoadFlag = Option.builder()
+            .option("fl")
+            .longOpt("fullload")
+            .desc("load all targets and diseases instead of only those referenced by association scores")
+            .build();
+
+    private final Option histogramFlag = Option.builder()
+            .option("hg")
+            .longOpt("histogram")
+            .desc("write the number of target-target pairs for every number of shared diseases"
+                    + " from the min number of shared diseases up")
+            .build();
+
+    private final Option writePairsFlag = Option.builder()
+            .option("wp")
+            .longOpt("writepairs")
+            .desc("stream target-target pairs with their shared diseases"
+                    + " to json-lines segment files in the target_pairs output directory")
+            .build();
+
+    private final Option lsh = Option.builder()
+            .option("lsh")
+            .longOpt("lsh")
+            .argName("bands,rows")
+            .hasArg()
+            .desc("approximate target-target pair count from MinHash signatures of bands x rows hashes"
+                    + " with LSH banding, more bands raise recall, more rows raise precision;"
+                    + " buckets of more than " + MinHashSearch.MAX_BUCKET_SIZE + " targets are skipped")
+            .build();
+
+    private final Option lshVerifyFlag = Option.builder()
+            .option("lv")
+            .longOpt("lshverify")
+            .desc("verify LSH candidate pairs exactly instead of using the signature estimate")
+            .build();
+
+    private final Option sharedTargetsNum = Option.builder()
+            .option("dsn")
+            .longOpt("diseasesharednumber")
+            .argName("number")
+            .type(Integer.class)
+            .hasArg()
+            .desc("min number of shared targets for disease-disease shared connection statistics (default: off)")
+            .build();
+
+    private final Option topPairs = Option.builder()
+            .option("tk")
+            .longOpt("toppairs")
+            .argName("number_top_pairs")
+            .type(Integer.class)
+            .hasArg()
+            .desc("write the given number of most similar target-target pairs")
+            .build();
+
+    private final Option similarityMeasure = Option.builder()
+            .option("sm")
+            .longOpt("similarity")
+            .argName("overlap|jaccard")
+            .hasArg()
+            .desc("similarity of target-target pairs for the most similar pairs (default: overlap)")
+            .build();
+
+    private final Option weightingMeasure = Option.builder()
+            .option("wt")
+            .longOpt("weighting")
+            .argName("weighting")
+            .hasArg()
+            .desc("similarity of the written target-target pairs: shared (number of shared diseases, default),"
+                    + " min_sum (sum of the lower median score over shared diseases)"
+                    + " or cosine (cosine of the median score vectors)")
+            .build();
+
+    private final Option partitions = Option.builder()
+            .option("pt")
+            .longOpt("partitions")
+            .argName("partitions")
+            .type(Integer.class)
+            .hasArg()
+            .desc("write the joint data set as the given number of compressed part-*.json.gz files"
+                    + " in the joint_dataset output directory instead of one joint_dataset.json file")
+            .build();
+
+    private final Option partitionHashFlag = Option.builder()
+            .option("ph")
+            .longOpt("partitionhash")
+            .desc("partition the joint data set by the hash of targetId instead of by row count")
+            .build();
+
+    private final Option arrowFlag = Option.builder()
+            .option("ar")
+            .longOpt("arrow")
+            .desc("experimental: also write the joint data set as joint_dataset.arrow, an Arrow IPC file"
+                    + " (Feather v2) with dictionary encoded ids and names")
+            .build();
+
+    private final Option missing = Option.builder()
+            .option("mr")
+            .longOpt("missing")
+            .argName("missing")
+            .hasArg()
+            .desc("associations whose target or disease is not found: report (kept with null symbol or name,"
+                    + " missing ids are printed, default), null (kept silently) or drop")
+            .build();
+
     private final Options options = new Options();
 
     {
@@ -79,6 +221,21 @@ public class CommandLineParameters {
         options.addOption(outputDir);
         options.addOption(sharedNum);
         options.addOption(topScores);
+        options.addOption(maxExact);
+        options.addOption(cache);
+        options.addOption(fullLoadFlag);
+        options.addOption(histogramFlag);
+        options.addOption(writePairsFlag);
+        options.addOption(lsh);
+        options.addOption(lshVerifyFlag);
+        options.addOption(sharedTargetsNum);
+        options.addOption(topPairs);
+        options.addOption(similarityMeasure);
+        options.addOption(weightingMeasure);
+        options.addOption(partitions);
+        options.addOption(partitionHashFlag);
+        options.addOption(arrowFlag);
+        options.addOption(missing);
     }
 
     public int getNumberOfTopScores() {
@@ -88,6 +245,74 @@ public class CommandLineParameters {
         return minNumberOfSharedDiseases;
     }
 
+    public int getMaxExactScores() {
+        return maxExactScores;
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public boolean isFullLoad() {
+        return fullLoad;
+    }
+
+    public boolean isSharedHistogram() {
+        return sharedHistogram;
+    }
+
+    public boolean isWritePairs() {
+        return writePairs;
+    }
+
+    public boolean isApproximate() {
+        return lshBands > 0;
+    }
+
+    public int getLshBands() {
+        return lshBands;
+    }
+
+    public int getLshRows() {
+        return lshRows;
+    }
+
+    public boolean isLshVerify() {
+        return lshVerify;
+    }
+
+    public int getMinSharedTargets() {
+        return minNumberOfSharedTargets;
+    }
+
+    public int getNumberOfTopPairs() {
+        return numberOfTopPairs;
+    }
+
+    public PairSimilarity getSimilarity() {
+        return similarity;
+    }
+
+    public PairWeighting getWeighting() {
+        return weighting;
+    }
+
+    public int getNumberOfPartitions() {
+        return numberOfPartitions;
+    }
+
+    public boolean isPartitionByHash() {
+        return partitionByHash;
+    }
+
+    public boolean isArrow() {
+        return arrow;
+    }
+
+    public MissingReference getMissingReference() {
+        return missingReference;
+    }
+
     public Path getPathToTargets() {
         return pathToTargets;
     }
@@ -128,6 +353,155 @@ public class CommandLineParameters {
                     + "<" + sharedNum.getArgName() + ">");
         }
 
+        // parse max number of exact scores option
+        try {
+            maxExactScores = Integer
+                    .parseInt(line.getOptionValue(maxExact, String.valueOf(Integer.MAX_VALUE)));
+        } catch (NumberFormatException ex) {
+            throw new ParseException("Bad value for "
+                    + "<" + maxExact.getArgName() + ">");
+        }
+
+        if (maxExactScores < 1) {
+            throw new ParseException("Bad value for "
+                    + "<" + maxExact.getArgName() + ">");
+        }
+
+        // parse cache option
+        cacheEnabled = line.hasOption(cache);
+
+        // parse full load option
+        fullLoad = line.hasOption(fullLoadFlag);
+
+        // parse shared diseases histogram option
+        sharedHistogram = line.hasOption(histogramFlag);
+
+        // parse write pairs option
+        writePairs = line.hasOption(writePairsFlag);
+
+        // parse approximate search options
+        if (line.hasOption(lsh)) {
+            String[] bandsAndRows = line.getOptionValue(lsh).split(",");
+            try {
+                if (bandsAndRows.length != 2)
+                    throw new NumberFormatException();
+                lshBands = Integer.parseInt(bandsAndRows[0].trim());
+                lshRows = Integer.parseInt(bandsAndRows[1].trim());
+            } catch (NumberFormatException ex) {
+                throw new ParseException("Bad value for "
+                        + "<" + lsh.getArgName() + ">");
+            }
+
+            if (lshBands < 1 || lshRows < 1) {
+                throw new ParseException("Bad value for "
+                        + "<" + lsh.getArgName() + ">");
+            }
+
+            // the approximate search only counts pairs
+            if (sharedHistogram || writePairs) {
+                throw new ParseException("Option " + lsh.getLongOpt() + " cannot be combined with "
+                        + histogramFlag.getLongOpt() + " or " + writePairsFlag.getLongOpt());
+            }
+        }
+
+        lshVerify = line.hasOption(lshVerifyFlag);
+
+        if (lshVerify && !line.hasOption(lsh)) {
+            throw new ParseException("Option " + lshVerifyFlag.getLongOpt()
+                    + " requires option " + lsh.getLongOpt());
+        }
+
+        // parse shared number of targets option
+        try {
+            minNumberOfSharedTargets = Integer
+                    .parseInt(line.getOptionValue(sharedTargetsNum, "0"));
+        } catch (NumberFormatException ex) {
+            throw new ParseException("Bad value for "
+                    + "<" + sharedTargetsNum.getArgName() + ">");
+        }
+
+        if (minNumberOfSharedTargets < 0) {
+            throw new ParseException("Bad value for "
+                    + "<" + sharedTargetsNum.getArgName() + ">");
+        }
+
+        // parse number of top pairs option
+        try {
+            numberOfTopPairs = Integer
+                    .parseInt(line.getOptionValue(topPairs, "0"));
+        } catch (NumberFormatException ex) {
+            throw new ParseException("Bad value for "
+                    + "<" + topPairs.getArgName() + ">");
+        }
+
+        if (numberOfTopPairs < 0) {
+            throw new ParseException("Bad value for "
+                    + "<" + topPairs.getArgName() + ">");
+        }
+
+        // parse similarity option
+        try {
+            similarity = PairSimilarity.valueOf(line.getOptionValue(similarityMeasure, "overlap")
+                    .toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new ParseException("Bad value for "
+                    + "<" + similarityMeasure.getArgName() + ">");
+        }
+
+        // the similarity only ranks the most similar pairs
+        if (line.hasOption(similarityMeasure) && numberOfTopPairs == 0) {
+            throw new ParseException("Option " + similarityMeasure.getLongOpt()
+                    + " requires option " + topPairs.getLongOpt());
+        }
+
+        // parse weighting option
+        try {
+            weighting = PairWeighting.valueOf(line.getOptionValue(weightingMeasure, "shared")
+                    .toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new ParseException("Bad value for "
+                    + "<" + weightingMeasure.getArgName() + ">");
+        }
+
+        // only written pairs carry a weighted similarity
+        if (line.hasOption(weightingMeasure) && !writePairs) {
+            throw new ParseException("Option " + weightingMeasure.getLongOpt()
+                    + " requires option " + writePairsFlag.getLongOpt());
+        }
+
+        // parse partitions options
+        try {
+            numberOfPartitions = Integer
+                    .parseInt(line.getOptionValue(partitions, "0"));
+        } catch (NumberFormatException ex) {
+            throw new ParseException("Bad value for "
+                    + "<" + partitions.getArgName() + ">");
+        }
+
+        if (numberOfPartitions < 0) {
+            throw new ParseException("Bad value for "
+                    + "<" + partitions.getArgName() + ">");
+        }
+
+        partitionByHash = line.hasOption(partitionHashFlag);
+
+        if (partitionByHash && numberOfPartitions == 0) {
+            throw new ParseException("Option " + partitionHashFlag.getLongOpt()
+                    + " requires option " + partitions.getLongOpt());
+        }
+
+        // parse arrow output option
+        arrow = line.hasOption(arrowFlag);
+
+        // parse missing reference policy
+        try {
+            missingReference = MissingReference.valueOf(line.getOptionValue(missing, "report")
+                    .toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new ParseException("Bad value for "
+                    + "<" + missing.getArgName() + ">");
+        }
+
         // parse targets path
         pathToTargets = Path.of(line.getOptionValue(targetsDir));
 
@@ -168,6 +542,33 @@ public class CommandLineParameters {
        System.out.println("\tOutput path: [" + this.getPathToOutput() + "]");
        System.out.println("\tMin number of shared connections: [" + this.getMinSharedNumber() + "]");
        System.out.println("\tNumber of top scores: [" + this.getNumberOfTopScores() + "]");
+       if (this.getMaxExactScores() < Integer.MAX_VALUE)
+           System.out.println("\tMax number of exact scores per association: [" + this.getMaxExactScores() + "]");
+       System.out.println("\tUse binary cache: [" + this.isCacheEnabled() + "]");
+       System.out.println("\tLoad all targets and diseases: [" + this.isFullLoad() + "]");
+       System.out.println("\tWrite shared diseases histogram: [" + this.isSharedHistogram() + "]");
+       System.out.println("\tWrite target-target pairs: [" + this.isWritePairs() + "]");
+       if (this.isWritePairs())
+           System.out.println("\tTarget-target pair similarity: ["
+                   + this.getWeighting().name().toLowerCase(Locale.ROOT) + "]");
+       if (this.getNumberOfPartitions() > 0)
+           System.out.println("\tJoint data set partitions by " + (this.isPartitionByHash() ? "targetId hash" : "row count")
+                   + ": [" + this.getNumberOfPartitions() + "]");
+       System.out.println("\tWrite Arrow joint data set: [" + this.isArrow() + "]");
+       System.out.println("\tMissing targets and diseases: ["
+               + this.getMissingReference().name().toLowerCase(Locale.ROOT) + "]");
+       if (this.getMinSharedTargets() > 0)
+           System.out.println("\tMin number of shared targets: [" + this.getMinSharedTargets() + "]");
+       if (this.getNumberOfTopPairs() > 0)
+           System.out.println("\tNumber of most similar pairs by " + this.getSimilarity().name().toLowerCase(Locale.ROOT)
+                   + ": [" + this.getNumberOfTopPairs() + "]");
+       if (this.isApproximate()) {
+           System.out.println("\tApproximate search LSH bands x rows: [" + this.getLshBands()
+                   + " x " + this.getLshRows() + "]");
+           System.out.format("\tApproximate search similarity threshold: [%.3f]%n"
+                   , MinHashSearch.threshold(this.getLshBands(), this.getLshRows()));
+           System.out.println("\tVerify approximate pairs: [" + this.isLshVerify() + "]");
+       }
    }
 
     public void printHelp() {
@@ -1,5 +1,8 @@
 package TargetDiseaseScore.cli;
 
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
 public class ProgressReporter {
     private long markTime;
 
@@ -7,15 +10,46 @@ public class ProgressReporter {
         markTime = System.nanoTime();
     }
 
-    public  void report(String processDesc, String numberOfDesc, int numberToReport) {
+    public  void report(String processDesc, String numberOfDesc, long numberToReport) {
+        long elapsedTime = System.nanoTime() - markTime;
+
+        report(processDesc, numberOfDesc, numberToReport, elapsedTime);
+
+        markTime = System.nanoTime();
+    }
+
+    /**
+     * Reports the time since the last mark without resetting it.
+     */
+    public void report(String processDesc) {
         long elapsedTime = System.nanoTime() - markTime;
 
+        synchronized (this) {
+            System.out.println();
+            System.out.format("Elapsed time for %s: %.0f (ms)", processDesc, elapsedTime * 1e-6);
+            System.out.println();
+        }
+    }
+
+    /**
+     * Runs a stage of the job and reports its own elapsed time,
+     * safe to use from concurrently running stages.
+     */
+    public <T> T stage(String processDesc, String numberOfDesc, Supplier<T> work, ToLongFunction<T> numberToReport) {
+        long startTime = System.nanoTime();
+
+        T result = work.get();
+
+        report(processDesc, numberOfDesc, numberToReport.applyAsLong(result), System.nanoTime() - startTime);
+
+        return result;
+    }
+
+    private synchronized void report(String processDesc, String numberOfDesc, long numberToReport, long elapsedTime) {
         System.out.println();
         System.out.format("Elapsed time for %s: %.0f (ms)", processDesc, elapsedTime * 1e-6);
         System.out.println();
         System.out.format("Number of %s: %d", numberOfDesc, numberToReport);
         System.out.println();
-
-        markTime = System.nanoTime();
     }
 }
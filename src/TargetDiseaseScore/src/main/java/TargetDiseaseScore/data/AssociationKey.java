@@ -0,0 +1,22 @@
+package TargetDiseaseScore.data;
+
+/**
+ * Packs a pair of dense dictionary indices into a single long:
+ * first index in the high 32 bits, second index in the low 32 bits.
+ * Unlike string concatenation of IDs the packed key is collision free.
+ */
+public final class AssociationKey {
+    private AssociationKey() {}
+
+    public static long pack(int first, int second) {
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+
+    public static int first(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int second(long key) {
+        return (int) key;
+    }
+}
@@ -0,0 +1,91 @@
+package TargetDiseaseScore.data;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Deterministic order of association rows by median, then targetId, then diseaseId,
+ * independent of the order the rows come in. IDs come in as their ranks in string order,
+ * e.g. from {@link IdColumn#getSortedRanks()}, so rows are put in ID order by counting
+ * sorts, and the median order is a single sort of primitive keys packed into longs.
+ */
+public final class AssociationOrder {
+    private AssociationOrder() {}
+
+    /**
+     * Row indices in sorted order, medians compare like Double.compare.
+     * Rows equal in all three keys keep their input order.
+     *
+     * @param targetRank  rank of the row's targetId among the distinct targetIds, below numberOfTargets
+     * @param diseaseRank rank of the row's diseaseId among the distinct diseaseIds, below numberOfDiseases
+     */
+    public static int[] byMedian(int numberOfRows, IntToDoubleFunction median
+            , IntUnaryOperator targetRank, int numberOfTargets
+            , IntUnaryOperator diseaseRank, int numberOfDiseases) {
+
+        // rows by (target, disease), stable, so equal pairs stay in input order
+        int[] byDisease = countingSort(identity(numberOfRows), diseaseRank, numberOfDiseases);
+        int[] byPair = countingSort(byDisease, targetRank, numberOfTargets);
+
+        int[] pairPositions = new int[numberOfRows];
+        for (int position = 0; position < numberOfRows; position++)
+            pairPositions[byPair[position]] = position;
+
+        long[] medianKeys = new long[numberOfRows];
+        Arrays.parallelSetAll(medianKeys, row -> sortableBits(median.applyAsDouble(row)));
+        int[] medianRanks = denseRanks(medianKeys);
+
+        // (median rank, pair position) packed, unique per row
+        long[] packed = new long[numberOfRows];
+        Arrays.parallelSetAll(packed, row -> AssociationKey.pack(medianRanks[row], pairPositions[row]));
+        Arrays.parallelSort(packed);
+
+        int[] order = new int[numberOfRows];
+        Arrays.parallelSetAll(order, i -> byPair[AssociationKey.second(packed[i])]);
+        return order;
+    }
+
+    private static int[] identity(int numberOfRows) {
+        int[] rows = new int[numberOfRows];
+        Arrays.setAll(rows, row -> row);
+        return rows;
+    }
+
+    // stable counting sort of the rows by a key below numberOfKeys
+    private static int[] countingSort(int[] rows, IntUnaryOperator key, int numberOfKeys) {
+        int[] starts = new int[numberOfKeys + 1];
+        for (int row : rows)
+            starts[key.applyAsInt(row) + 1]++;
+        for (int k = 0; k < numberOfKeys; k++)
+            starts[k + 1] += starts[k];
+
+        int[] sorted = new int[rows.length];
+        for (int row : rows)
+            sorted[starts[key.applyAsInt(row)]++] = row;
+        return sorted;
+    }
+
+    // long bits that sort like Double.compare: negative values have their magnitude bits flipped
+    private static long sortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    // rank of every key among the distinct keys
+    private static int[] denseRanks(long[] keys) {
+        long[] distinct = keys.clone();
+        Arrays.parallelSort(distinct);
+
+        int size = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (i == 0 || distinct[i] != distinct[i - 1])
+                distinct[size++] = distinct[i];
+        }
+        int numberOfDistinct = size;
+
+        int[] ranks = new int[keys.length];
+        Arrays.parallelSetAll(ranks, i -> Arrays.binarySearch(distinct, 0, numberOfDistinct, keys[i]));
+        return ranks;
+    }
+}
@@ -0,0 +1,293 @@
+package TargetDiseaseScore.data;
+
+import java.util.Arrays;
+
+/**
+ * Collects evidence scores per target-disease association.
+ * Associations are keyed by packed dictionary indices and their scores
+ * are kept in growable primitive arrays, one array per association.
+ * <p>
+ * With a limit on exact scores, an association that grows past the limit
+ * drops its raw scores and keeps an exact count, a top-N heap and a
+ * {@link QuantileSketch} for the median instead, so memory scales with
+ * the number of associations rather than the number of evidence rows.
+ * <p>
+ * Not thread-safe, use one per worker and {@link #merge(EvidenceAccumulator)}.
+ */
+public class EvidenceAccumulator {
+    private static final int INITIAL_SCORES_CAPACITY = 4;
+
+    private final int maxExactScores;
+    private final int numberOfTopScores;
+
+    private final IdDictionary targets = new IdDictionary();
+    private final IdDictionary diseases = new IdDictionary();
+    private final LongIntMap associationIndex = new LongIntMap();
+
+    private long[] keys = new long[16];
+    private double[][] scores = new double[16][];
+    private int[] counts = new int[16];
+    private int size;
+
+    // state of associations beyond the exact limit, null for exact ones
+    private double[][] topScores = new double[16][];
+    private QuantileSketch[] sketches = new QuantileSketch[16];
+
+    /**
+     * Accumulator that keeps all scores.
+     */
+    public EvidenceAccumulator() {
+        this(Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * @param maxExactScores    max number of raw scores kept per association
+     * @param numberOfTopScores number of top scores tracked once an association is over the limit
+     */
+    public EvidenceAccumulator(int maxExactScores, int numberOfTopScores) {
+        if (maxExactScores < 1)
+            throw new IllegalArgumentException("Max number of exact scores should be positive: " + maxExactScores);
+        if (numberOfTopScores < 0)
+            throw new IllegalArgumentException("Number of top scores should not be negative: " + numberOfTopScores);
+
+        this.maxExactScores = maxExactScores;
+        this.numberOfTopScores = numberOfTopScores;
+    }
+
+    public IdDictionary getTargets() {
+        return targets;
+    }
+
+    public IdDictionary getDiseases() {
+        return diseases;
+    }
+
+    public int getNumberOfTopScores() {
+        return numberOfTopScores;
+    }
+
+    /**
+     * @return number of target-disease associations
+     */
+    public int size() {
+        return size;
+    }
+
+    public void add(int targetIndex, int diseaseIndex, double score) {
+        addScore(associationOf(AssociationKey.pack(targetIndex, diseaseIndex)), score);
+    }
+
+    /**
+     * Adds a batch of scores of one association, the scores array
+     * may be taken over by the accumulator.
+     */
+    public void addAll(int targetIndex, int diseaseIndex, double[] associationScores) {
+        long key = AssociationKey.pack(targetIndex, diseaseIndex);
+
+        if (associationIndex.get(key) == LongIntMap.NO_VALUE
+                && associationScores.length > 0 && associationScores.length <= maxExactScores) {
+            int association = associationOf(key);
+            scores[association] = associationScores;
+            counts[association] = associationScores.length;
+            return;
+        }
+
+        int association = associationOf(key);
+        for (double score : associationScores) {
+            addScore(association, score);
+        }
+    }
+
+    /**
+     * Moves all evidence of the other accumulator into this one.
+     * The other accumulator should not be used afterwards.
+     *
+     * @return this accumulator
+     */
+    public EvidenceAccumulator merge(EvidenceAccumulator other) {
+        int[] targetRemap = other.targets.mapTo(targets);
+        int[] diseaseRemap = other.diseases.mapTo(diseases);
+
+        for (int i = 0; i < other.size; i++) {
+            long key = AssociationKey.pack(targetRemap[AssociationKey.first(other.keys[i])]
+                    , diseaseRemap[AssociationKey.second(other.keys[i])]);
+
+            int existing = associationIndex.get(key);
+            if (existing == LongIntMap.NO_VALUE) {
+                // new association - take over its state as is
+                int association = associationOf(key);
+                scores[association] = other.scores[i];
+                counts[association] = other.counts[i];
+                topScores[association] = other.topScores[i];
+                sketches[association] = other.sketches[i];
+            } else if (other.sketches[i] == null) {
+                for (int j = 0; j < other.counts[i]; j++) {
+                    addScore(existing, other.scores[i][j]);
+                }
+            } else {
+                if (sketches[existing] == null)
+                    overflow(existing);
+
+                sketches[existing].merge(other.sketches[i]);
+                for (double score : other.topScores[i]) {
+                    offerTopScore(topScores[existing], score);
+                }
+                counts[existing] += other.counts[i];
+            }
+        }
+
+        return this;
+    }
+
+    public int getTargetIndex(int association) {
+        return AssociationKey.first(keys[association]);
+    }
+
+    public int getDiseaseIndex(int association) {
+        return AssociationKey.second(keys[association]);
+    }
+
+    public String getTargetId(int association) {
+        return targets.get(AssociationKey.first(keys[association]));
+    }
+
+    public String getDiseaseId(int association) {
+        return diseases.get(AssociationKey.second(keys[association]));
+    }
+
+    /**
+     * @return true if all scores of the association are kept
+     */
+    public boolean isExact(int association) {
+        return sketches[association] == null;
+    }
+
+    /**
+     * @return scores buffer of an exact association, only the first
+     * {@link #getCount(int)} values are meaningful
+     */
+    public double[] getScores(int association) {
+        if (!isExact(association))
+            throw new IllegalStateException("Raw scores are not kept for association " + association);
+        return scores[association];
+    }
+
+    /**
+     * @return number of evidence scores of the association
+     */
+    public int getCount(int association) {
+        return counts[association];
+    }
+
+    /**
+     * @return approximate median of an association beyond the exact limit
+     */
+    public double getApproximateMedian(int association) {
+        if (isExact(association))
+            throw new IllegalStateException("No sketch for exact association " + association);
+        return sketches[association].median();
+    }
+
+    /**
+     * @return top scores of an association beyond the exact limit in descending order
+     */
+    public double[] getTopScores(int association) {
+        if (isExact(association))
+            throw new IllegalStateException("No top scores heap for exact association " + association);
+
+        double[] heap = topScores[association].clone();
+        Arrays.sort(heap);
+
+        // unfilled slots are at the head of the sorted heap
+        double[] top = new double[Math.min(heap.length, counts[association])];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = heap[heap.length - 1 - i];
+        }
+        return top;
+    }
+
+    private void addScore(int association, double score) {
+        int count = counts[association];
+
+        if (sketches[association] == null && count == maxExactScores)
+            overflow(association);
+
+        counts[association] = count + 1;
+
+        if (sketches[association] != null) {
+            sketches[association].add(score);
+            offerTopScore(topScores[association], score);
+            return;
+        }
+
+        double[] associationScores = scores[association];
+        if (count == associationScores.length) {
+            associationScores = Arrays.copyOf(associationScores
+                    , (int) Math.min((long) count * 2, maxExactScores));
+            scores[association] = associationScores;
+        }
+        associationScores[count] = score;
+    }
+
+    // switch an exact association to the bounded state
+    private void overflow(int association) {
+        double[] associationScores = scores[association];
+        int count = counts[association];
+
+        var sketch = new QuantileSketch(Math.max(maxExactScores, 8));
+        for (int i = 0; i < count; i++) {
+            sketch.add(associationScores[i]);
+        }
+
+        // keep the top N of the buffer as a min-heap
+        double[] heap = new double[numberOfTopScores];
+        Arrays.fill(heap, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < count; i++) {
+            offerTopScore(heap, associationScores[i]);
+        }
+
+        sketches[association] = sketch;
+        topScores[association] = heap;
+        scores[association] = null;
+    }
+
+    // fixed size min-heap, slots not filled yet hold negative infinity
+    private static void offerTopScore(double[] heap, double score) {
+        if (heap.length == 0 || score <= heap[0])
+            return;
+
+        // replace the smallest and sift down
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heap.length)
+                break;
+            if (child + 1 < heap.length && heap[child + 1] < heap[child])
+                child++;
+            if (heap[child] >= score)
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = score;
+    }
+
+    private int associationOf(long key) {
+        int association = associationIndex.putIfAbsent(key, size);
+        if (association != LongIntMap.NO_VALUE)
+            return association;
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+            topScores = Arrays.copyOf(topScores, size * 2);
+            sketches = Arrays.copyOf(sketches, size * 2);
+        }
+        keys[size] = key;
+        scores[size] = new double[Math.min(INITIAL_SCORES_CAPACITY, maxExactScores)];
+        counts[size] = 0;
+
+        return size++;
+    }
+}
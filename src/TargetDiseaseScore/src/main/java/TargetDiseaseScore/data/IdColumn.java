@@ -0,0 +1,69 @@
+package TargetDiseaseScore.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * An ID column of rows as dense indices: the distinct IDs in a dictionary and
+ * the dictionary index of every row. Values joined to the rows are looked up once
+ * per distinct ID into a list by index, so the join itself is an array index per row.
+ */
+public final class IdColumn {
+    private final IdDictionary dictionary;
+    private final int[] indices;
+
+    private IdColumn(IdDictionary dictionary, int[] indices) {
+        this.dictionary = dictionary;
+        this.indices = indices;
+    }
+
+    public static IdColumn of(int numberOfRows, IntFunction<String> id) {
+        var dictionary = new IdDictionary(1024);
+        int[] indices = new int[numberOfRows];
+        for (int row = 0; row < numberOfRows; row++)
+            indices[row] = dictionary.add(id.apply(row));
+        return new IdColumn(dictionary, indices);
+    }
+
+    /**
+     * The distinct IDs, e.g. to load only referenced objects.
+     */
+    public IdDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public int size() {
+        return indices.length;
+    }
+
+    public int getIndex(int row) {
+        return indices[row];
+    }
+
+    /**
+     * @return rank of every distinct ID in string order by dictionary index, sorts the distinct IDs only
+     */
+    public int[] getSortedRanks() {
+        String[] sorted = new String[dictionary.size()];
+        Arrays.setAll(sorted, dictionary::get);
+        Arrays.parallelSort(sorted);
+
+        int[] ranks = new int[sorted.length];
+        for (int rank = 0; rank < sorted.length; rank++)
+            ranks[dictionary.indexOf(sorted[rank])] = rank;
+        return ranks;
+    }
+
+    /**
+     * @return values of the distinct IDs by dictionary index, null for IDs missing in the map
+     */
+    public <T> List<T> resolve(Map<String, T> values) {
+        List<T> resolved = new ArrayList<>(dictionary.size());
+        for (int index = 0; index < dictionary.size(); index++)
+            resolved.add(values.get(dictionary.get(index)));
+        return resolved;
+    }
+}
@@ -0,0 +1,159 @@
+package TargetDiseaseScore.data;
+
+import java.util.Arrays;
+
+/**
+ * Maps string IDs (Ensembl, EFO, MONDO, ...) to dense int indices 0..size-1.
+ * Lookups can be done straight from a parser char buffer, so a String is only
+ * allocated the first time an ID is seen. Not thread-safe, use one per worker
+ * and {@link #mapTo(IdDictionary)} to merge.
+ */
+public class IdDictionary {
+    private static final int EMPTY = -1;
+
+    private String[] ids;
+    private int[] hashes;
+    private int[] slots;
+    private int mask;
+    private int size;
+
+    public IdDictionary() {
+        this(16);
+    }
+
+    public IdDictionary(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+        ids = new String[Math.max(expectedSize, 8)];
+        hashes = new int[ids.length];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("No ID for index " + index);
+        return ids[index];
+    }
+
+    public int indexOf(String id) {
+        int hash = id.hashCode();
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int index = slots[slot];
+            if (index == EMPTY)
+                return EMPTY;
+            if (hashes[index] == hash && ids[index].equals(id))
+                return index;
+        }
+    }
+
+    public int indexOf(char[] buffer, int offset, int length) {
+        int hash = hash(buffer, offset, length);
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int index = slots[slot];
+            if (index == EMPTY)
+                return EMPTY;
+            if (hashes[index] == hash && matches(ids[index], buffer, offset, length))
+                return index;
+        }
+    }
+
+    public int add(String id) {
+        int hash = id.hashCode();
+        int slot = mix(hash) & mask;
+        for (; ; slot = (slot + 1) & mask) {
+            int index = slots[slot];
+            if (index == EMPTY)
+                break;
+            if (hashes[index] == hash && ids[index].equals(id))
+                return index;
+        }
+        return insert(slot, id, hash);
+    }
+
+    public int add(char[] buffer, int offset, int length) {
+        int hash = hash(buffer, offset, length);
+        int slot = mix(hash) & mask;
+        for (; ; slot = (slot + 1) & mask) {
+            int index = slots[slot];
+            if (index == EMPTY)
+                break;
+            if (hashes[index] == hash && matches(ids[index], buffer, offset, length))
+                return index;
+        }
+        // first time we see this id - the only allocation on this path
+        return insert(slot, new String(buffer, offset, length), hash);
+    }
+
+    /**
+     * Adds all IDs of this dictionary to the other one.
+     *
+     * @return translation table from indices of this dictionary to indices of the other
+     */
+    public int[] mapTo(IdDictionary other) {
+        int[] remap = new int[size];
+        synchronized (other) {
+            for (int i = 0; i < size; i++) {
+                remap[i] = other.add(ids[i]);
+            }
+        }
+        return remap;
+    }
+
+    private int insert(int slot, String id, int hash) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        ids[size] = id;
+        hashes[size] = hash;
+        slots[slot] = size;
+
+        // keep load factor under 1/2
+        if (++size * 2 > slots.length)
+            rehash();
+
+        return size - 1;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, EMPTY);
+        mask = slots.length - 1;
+
+        for (int i = 0; i < size; i++) {
+            int slot = mix(hashes[i]) & mask;
+            while (slots[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            slots[slot] = i;
+        }
+    }
+
+    // same as String.hashCode() so both lookup paths agree
+    private static int hash(char[] buffer, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + buffer[i];
+        }
+        return h;
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(String id, char[] buffer, int offset, int length) {
+        if (id.length() != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (id.charAt(i) != buffer[offset + i])
+                return false;
+        }
+        return true;
+    }
+}
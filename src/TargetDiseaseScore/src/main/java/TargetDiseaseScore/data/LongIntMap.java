@@ -0,0 +1,95 @@
+package TargetDiseaseScore.data;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from long keys to non-negative int values.
+ * No boxing and no per-entry allocation. Not thread-safe.
+ */
+public class LongIntMap {
+    public static final int NO_VALUE = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntMap() {
+        this(16);
+    }
+
+    public LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(long key) {
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int value = values[slot];
+            if (value == NO_VALUE || keys[slot] == key)
+                return value;
+        }
+    }
+
+    /**
+     * Associates the value with the key unless the key is already present.
+     *
+     * @return the existing value or {@link #NO_VALUE} if the new value was stored
+     */
+    public int putIfAbsent(long key, int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Only non-negative values can be stored: " + value);
+
+        int slot = mix(key) & mask;
+        for (; values[slot] != NO_VALUE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key)
+                return values[slot];
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+
+        // keep load factor under 1/2
+        if (++size * 2 > keys.length)
+            rehash();
+
+        return NO_VALUE;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, NO_VALUE);
+        mask = keys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == NO_VALUE)
+                continue;
+            int slot = mix(oldKeys[i]) & mask;
+            while (values[slot] != NO_VALUE)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    // murmur3 finalizer
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb93fe53e4ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,20 @@
+package TargetDiseaseScore.data;
+
+/**
+ * What the joint data set does with associations whose target or disease
+ * is not found in the targets or diseases dump.
+ */
+public enum MissingReference {
+    /**
+     * Leave the association out.
+     */
+    DROP,
+    /**
+     * Keep the association with a null symbol or name.
+     */
+    NULL,
+    /**
+     * Keep the association with a null symbol or name and report the missing IDs.
+     */
+    REPORT
+}
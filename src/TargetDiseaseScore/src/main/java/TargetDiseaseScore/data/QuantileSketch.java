@@ -0,0 +1,115 @@
+package TargetDiseaseScore.data;
+
+import java.util.Arrays;
+
+/**
+ * Bounded-memory approximate quantile sketch (a simplified KLL sketch).
+ * Values are kept in levels of at most k items, an item on level h stands
+ * for 2^h original values. A full level is sorted and every other item is
+ * promoted to the next level, so memory grows with log(count/k) only.
+ * Compaction offsets alternate per level to keep results deterministic.
+ */
+public class QuantileSketch {
+    private final int k;
+    private double[][] levels = new double[1][];
+    private int[] levelSizes = new int[1];
+    private int offsets;
+    private long count;
+
+    public QuantileSketch(int k) {
+        if (k < 2)
+            throw new IllegalArgumentException("Sketch level capacity should be at least 2: " + k);
+        this.k = k;
+        levels[0] = new double[k];
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void add(double value) {
+        count++;
+        append(0, value);
+    }
+
+    public void merge(QuantileSketch other) {
+        count += other.count;
+        for (int h = 0; h < other.levels.length; h++) {
+            for (int i = 0; i < other.levelSizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+    }
+
+    public double median() {
+        if (count == 0)
+            throw new IllegalArgumentException("Attempt to calculate median value on an empty sketch");
+
+        // sorted copy of each level, an item on level h weighs 2^h
+        double[][] sorted = new double[levels.length][];
+        for (int h = 0; h < levels.length; h++) {
+            sorted[h] = Arrays.copyOf(levels[h], levelSizes[h]);
+            Arrays.sort(sorted[h]);
+        }
+
+        // same convention as the exact median: average of the two middle values for even counts
+        long lowRank = (count - 1) / 2;
+        long highRank = count / 2;
+        double low = Double.NaN;
+
+        // walk all levels in value order
+        int[] positions = new int[levels.length];
+        long cumulative = 0;
+        while (true) {
+            int next = -1;
+            for (int h = 0; h < sorted.length; h++) {
+                if (positions[h] < sorted[h].length
+                        && (next < 0 || sorted[h][positions[h]] < sorted[next][positions[next]]))
+                    next = h;
+            }
+
+            double value = sorted[next][positions[next]++];
+            cumulative += 1L << next;
+
+            if (Double.isNaN(low) && cumulative > lowRank)
+                low = value;
+            if (cumulative > highRank)
+                return (low + value) / 2.0;
+        }
+    }
+
+    private void append(int level, double value) {
+        if (level == levels.length) {
+            levels = Arrays.copyOf(levels, level + 1);
+            levelSizes = Arrays.copyOf(levelSizes, level + 1);
+            levels[level] = new double[k];
+        }
+
+        levels[level][levelSizes[level]++] = value;
+
+        if (levelSizes[level] == k)
+            compact(level);
+    }
+
+    private void compact(int level) {
+        double[] items = levels[level];
+        int size = levelSizes[level];
+        Arrays.sort(items, 0, size);
+
+        // alternate between odd and even items on every compaction of the level
+        int offset = (offsets >>> level) & 1;
+        offsets ^= 1 << level;
+
+        // an odd item out stays on its level
+        int keep = size % 2;
+        double leftover = items[size - 1];
+
+        levelSizes[level] = 0;
+        for (int i = offset; i < size - keep; i += 2) {
+            append(level + 1, items[i]);
+        }
+
+        if (keep == 1)
+            items[levelSizes[level]++] = leftover;
+    }
+}
@@ -0,0 +1,32 @@
+package TargetDiseaseScore.dto;
+
+import java.util.Set;
+
+public class DiseaseOverlapPair {
+    private String diseaseIdA;
+    private String diseaseIdB;
+    private final Set<String> targetsShared;
+
+    public DiseaseOverlapPair(String diseaseIdA, String diseaseIdB, Set<String> targetsShared){
+        this.diseaseIdA = diseaseIdA;
+        this.diseaseIdB = diseaseIdB;
+        this.targetsShared = targetsShared;
+    }
+
+    public String getDiseaseIdA() {
+        return diseaseIdA;
+    }
+
+    public String getDiseaseIdB() {
+        return diseaseIdB;
+    }
+
+    public Set<String> getTargetsShared() {
+        return targetsShared;
+    }
+
+    public String toString() {
+        return String.format("DiseaseA:[%s] DiseaseB:[%s] Shared targets:%s"
+                , diseaseIdA, diseaseIdB, targetsShared);
+    }
+}
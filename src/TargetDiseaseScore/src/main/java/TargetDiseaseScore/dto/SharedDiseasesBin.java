@@ -0,0 +1,39 @@
+package TargetDiseaseScore.dto;
+
+public class SharedDiseasesBin {
+    private int sharedDiseases;
+    private long targetPairs;
+    private long targetPairsAtLeast;
+
+    public SharedDiseasesBin() {}
+
+    public SharedDiseasesBin(int sharedDiseases, long targetPairs, long targetPairsAtLeast) {
+        this.sharedDiseases = sharedDiseases;
+        this.targetPairs = targetPairs;
+        this.targetPairsAtLeast = targetPairsAtLeast;
+    }
+
+    public int getSharedDiseases() {
+        return sharedDiseases;
+    }
+
+    public void setSharedDiseases(int sharedDiseases) {
+        this.sharedDiseases = sharedDiseases;
+    }
+
+    public long getTargetPairs() {
+        return targetPairs;
+    }
+
+    public void setTargetPairs(long targetPairs) {
+        this.targetPairs = targetPairs;
+    }
+
+    public long getTargetPairsAtLeast() {
+        return targetPairsAtLeast;
+    }
+
+    public void setTargetPairsAtLeast(long targetPairsAtLeast) {
+        this.targetPairsAtLeast = targetPairsAtLeast;
+    }
+}
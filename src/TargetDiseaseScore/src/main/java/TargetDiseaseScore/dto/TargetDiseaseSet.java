@@ -1,29 +1,114 @@
 package TargetDiseaseScore.dto;
 
-import java.util.Set;
-
+/**
+ * Diseases of a target as a bitmap over dense disease indices.
+ */
 public class TargetDiseaseSet {
-    public TargetDiseaseSet(String targetId, Set<String> diseases) {
+    private final String targetId;
+    private final long[] diseases;
+    private final int numberOfDiseases;
+
+    /**
+     * @param diseaseIndices disease indices of the target, no duplicates
+     * @param numberOfAllDiseases size of the disease index space
+     */
+    public TargetDiseaseSet(String targetId, int[] diseaseIndices, int from, int to, int numberOfAllDiseases) {
         this.targetId = targetId;
-        this.diseases = diseases;
+        this.diseases = new long[(numberOfAllDiseases + 63) >>> 6];
+        for (int i = from; i < to; i++)
+            diseases[diseaseIndices[i] >>> 6] |= 1L << diseaseIndices[i];
+        this.numberOfDiseases = to - from;
     }
 
-    public String targetId;
-    public Set<String> diseases;
-
     public String getTargetId() {
         return targetId;
     }
 
-    public void setTargetId(String targetId) {
-        this.targetId = targetId;
+    public long[] getDiseases() {
+        return diseases;
     }
 
-    public Set<String> getDiseases() {
-        return diseases;
+    public int getNumberOfDiseases() {
+        return numberOfDiseases;
+    }
+
+    public boolean contains(int diseaseIndex) {
+        return (diseases[diseaseIndex >>> 6] & (1L << diseaseIndex)) != 0;
+    }
+
+    /**
+     * AND + popcount over the bitmaps. Stops as soon as min shared is reached,
+     * or as soon as the diseases left in this set can no longer reach it.
+     */
+    public boolean sharesAtLeast(TargetDiseaseSet other, int minShared) {
+        if (Math.min(numberOfDiseases, other.numberOfDiseases) < minShared)
+            return false;
+
+        long[] otherDiseases = other.diseases;
+        int shared = 0;
+        int left = numberOfDiseases;
+
+        for (int i = 0; i < diseases.length; i++) {
+            long word = diseases[i];
+            if (word == 0)
+                continue;
+
+            shared += Long.bitCount(word & otherDiseases[i]);
+            if (shared >= minShared)
+                return true;
+
+            left -= Long.bitCount(word);
+            if (shared + left < minShared)
+                return false;
+        }
+
+        return false;
+    }
+
+    /**
+     * Number of shared diseases, exact when it is at least min shared. Below that
+     * it stops as soon as the diseases left in this set can no longer reach min shared.
+     */
+    public int countShared(TargetDiseaseSet other, int minShared) {
+        long[] otherDiseases = other.diseases;
+        int shared = 0;
+        int left = numberOfDiseases;
+
+        for (int i = 0; i < diseases.length; i++) {
+            long word = diseases[i];
+            if (word == 0)
+                continue;
+
+            shared += Long.bitCount(word & otherDiseases[i]);
+
+            left -= Long.bitCount(word);
+            if (shared + left < minShared)
+                return shared;
+        }
+
+        return shared;
     }
 
-    public void setDiseases(Set<String> diseases) {
-        this.diseases = diseases;
+    /**
+     * Sorted disease indices present in both sets.
+     */
+    public int[] shared(TargetDiseaseSet other) {
+        long[] otherDiseases = other.diseases;
+
+        int size = 0;
+        for (int i = 0; i < diseases.length; i++)
+            size += Long.bitCount(diseases[i] & otherDiseases[i]);
+
+        int[] shared = new int[size];
+        int k = 0;
+        for (int i = 0; i < diseases.length && k < size; i++) {
+            long word = diseases[i] & otherDiseases[i];
+            while (word != 0) {
+                shared[k++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+
+        return shared;
     }
-}
\ No newline at end of file
+}
@@ -6,11 +6,17 @@ public class TargetOverlapPair {
     private String targetIdA;
     private String targetIdB;
     private final Set<String> diseasesShared;
+    private final double similarity;
 
     public TargetOverlapPair(String targetIdA, String targetIdB, Set<String> diseasesShared){
+        this(targetIdA, targetIdB, diseasesShared, diseasesShared.size());
+    }
+
+    public TargetOverlapPair(String targetIdA, String targetIdB, Set<String> diseasesShared, double similarity){
         this.targetIdA = targetIdA;
         this.targetIdB = targetIdB;
         this.diseasesShared = diseasesShared;
+        this.similarity = similarity;
     }
 
     public String getTargetIdA() {
@@ -25,8 +31,12 @@ public class TargetOverlapPair {
         return diseasesShared;
     }
 
+    public double getSimilarity() {
+        return similarity;
+    }
+
     public String toString() {
-        return String.format("TargetA:[%s] TargetB:[%s] Shared diseases:%s"
-                , targetIdA, targetIdB, diseasesShared);
+        return String.format("TargetA:[%s] TargetB:[%s] Shared diseases:%s Similarity:%.4f"
+                , targetIdA, targetIdB, diseasesShared, similarity);
     }
 }
\ No newline at end of file
@@ -0,0 +1,443 @@
+package TargetDiseaseScore.io;
+
+import TargetDiseaseScore.data.IdDictionary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Columns written as an Arrow IPC file (Feather v2), which Arrow readers memory map
+ * without parsing. String columns are dictionary encoded with int32 indices, the
+ * dictionaries are written once ahead of record batches of at most 2^20 rows.
+ * Supported column types are utf8 strings, float64 and list of float64;
+ * the metadata is written with a minimal FlatBuffers builder, the body is uncompressed.
+ * Experimental: the encoding is not yet compared with a file written by an Arrow implementation.
+ */
+public class ArrowFileWriter {
+    static final byte[] MAGIC = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+
+    // Message.fbs and Schema.fbs constants
+    private static final short METADATA_V5 = 4;
+    private static final byte HEADER_SCHEMA = 1;
+    private static final byte HEADER_DICTIONARY_BATCH = 2;
+    private static final byte HEADER_RECORD_BATCH = 3;
+    private static final byte TYPE_FLOATING_POINT = 3;
+    private static final byte TYPE_UTF8 = 5;
+    private static final byte TYPE_LIST = 12;
+    private static final short PRECISION_DOUBLE = 2;
+
+    private final int numberOfRows;
+    private final int batchRows;
+    private final List<Column> columns = new ArrayList<>();
+    private final List<StringColumn> dictionaries = new ArrayList<>();
+
+    public ArrowFileWriter(int numberOfRows) {
+        this(numberOfRows, 1 << 20);
+    }
+
+    ArrowFileWriter(int numberOfRows, int batchRows) {
+        this.numberOfRows = numberOfRows;
+        this.batchRows = batchRows;
+    }
+
+    /**
+     * Dictionary encoded utf8 column, null values are allowed.
+     */
+    public ArrowFileWriter addStrings(String name, IntFunction<String> values) {
+        var column = new StringColumn(name, dictionaries.size(), values, numberOfRows);
+        columns.add(column);
+        dictionaries.add(column);
+        return this;
+    }
+
+    public ArrowFileWriter addDoubles(String name, IntToDoubleFunction values) {
+        columns.add(new DoubleColumn(name, values));
+        return this;
+    }
+
+    /**
+     * List of float64 column, null lists are allowed.
+     */
+    public ArrowFileWriter addDoubleLists(String name, IntFunction<List<Double>> values) {
+        columns.add(new DoubleListColumn(name, values));
+        return this;
+    }
+
+    public void write(Path file) {
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE
+                , StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            channel.write(ByteBuffer.wrap(MAGIC));
+            channel.write(ByteBuffer.allocate(2));
+
+            // schema message without a body
+            var builder = new FlatBufferBuilder();
+            writeMessage(channel, builder, HEADER_SCHEMA, schema(builder), new Body());
+
+            var dictionaryBlocks = new ArrayList<Block>();
+            for (StringColumn dictionary : dictionaries) {
+                var body = new Body();
+                dictionary.dictionaryBatch(body);
+
+                builder = new FlatBufferBuilder();
+                int batch = recordBatch(builder, dictionary.dictionary.size(), body);
+                builder.startTable(3);
+                builder.addLong(0, dictionary.id);
+                builder.addOffset(1, batch);
+                dictionaryBlocks.add(writeMessage(channel, builder, HEADER_DICTIONARY_BATCH, builder.endTable(), body));
+            }
+
+            var batchBlocks = new ArrayList<Block>();
+            for (int from = 0; from < numberOfRows || from == 0; from += batchRows) {
+                int to = Math.min(from + batchRows, numberOfRows);
+                var body = new Body();
+                for (Column column : columns)
+                    column.batch(from, to, body);
+
+                builder = new FlatBufferBuilder();
+                batchBlocks.add(writeMessage(channel, builder, HEADER_RECORD_BATCH
+                        , recordBatch(builder, to - from, body), body));
+            }
+
+            // end of stream marker, then the footer with the schema and the message blocks
+            channel.write(littleEndian(8).putInt(-1).putInt(0).flip());
+
+            builder = new FlatBufferBuilder();
+            int schema = schema(builder);
+            int dictionaryVector = blocks(builder, dictionaryBlocks);
+            int batchVector = blocks(builder, batchBlocks);
+            builder.startTable(5);
+            builder.addShort(0, METADATA_V5);
+            builder.addOffset(1, schema);
+            builder.addOffset(2, dictionaryVector);
+            builder.addOffset(3, batchVector);
+            byte[] footer = builder.finish(builder.endTable());
+
+            channel.write(ByteBuffer.wrap(footer));
+            channel.write(littleEndian(4).putInt(footer.length).flip());
+            channel.write(ByteBuffer.wrap(MAGIC));
+        } catch (IOException ex) {
+            throw new RuntimeException("Writing an arrow file: something bad happened with IO: ", ex);
+        }
+    }
+
+    private int schema(FlatBufferBuilder builder) {
+        int[] fields = new int[columns.size()];
+        for (int i = 0; i < fields.length; i++)
+            fields[i] = columns.get(i).field(builder);
+        int fieldVector = builder.createOffsetVector(fields);
+
+        builder.startTable(4);
+        builder.addOffset(1, fieldVector);
+        return builder.endTable();
+    }
+
+    private static int recordBatch(FlatBufferBuilder builder, long length, Body body) {
+        builder.startVector(16, body.nodes.size(), 8);
+        for (int i = body.nodes.size() - 1; i >= 0; i--) {
+            builder.prep(8, 16);
+            builder.putLong(body.nodes.get(i)[1]);
+            builder.putLong(body.nodes.get(i)[0]);
+        }
+        int nodeVector = builder.endVector(body.nodes.size());
+
+        builder.startVector(16, body.buffers.size(), 8);
+        for (int i = body.buffers.size() - 1; i >= 0; i--) {
+            builder.prep(8, 16);
+            builder.putLong(body.buffers.get(i).remaining());
+            builder.putLong(body.offsets.get(i));
+        }
+        int bufferVector = builder.endVector(body.buffers.size());
+
+        builder.startTable(4);
+        builder.addLong(0, length);
+        builder.addOffset(1, nodeVector);
+        builder.addOffset(2, bufferVector);
+        return builder.endTable();
+    }
+
+    private static int blocks(FlatBufferBuilder builder, List<Block> blocks) {
+        builder.startVector(24, blocks.size(), 8);
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            builder.prep(8, 24);
+            builder.putLong(blocks.get(i).bodyLength);
+            builder.pad(4);
+            builder.putInt(blocks.get(i).metadataLength);
+            builder.putLong(blocks.get(i).offset);
+        }
+        return builder.endVector(blocks.size());
+    }
+
+    // continuation marker, metadata length, metadata padded to 8 bytes, then the body
+    private static Block writeMessage(FileChannel channel, FlatBufferBuilder builder
+            , byte headerType, int header, Body body) throws IOException {
+
+        builder.startTable(5);
+        builder.addShort(0, METADATA_V5);
+        builder.addByte(1, headerType);
+        builder.addOffset(2, header);
+        builder.addLong(3, body.length);
+        byte[] metadata = builder.finish(builder.endTable());
+
+        long offset = channel.position();
+        int paddedLength = align(metadata.length);
+
+        channel.write(littleEndian(8).putInt(-1).putInt(paddedLength).flip());
+        channel.write(ByteBuffer.wrap(metadata));
+        channel.write(ByteBuffer.allocate(paddedLength - metadata.length));
+
+        for (ByteBuffer buffer : body.buffers) {
+            int padding = align(buffer.remaining()) - buffer.remaining();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.write(ByteBuffer.allocate(padding));
+        }
+
+        return new Block(offset, 8 + paddedLength, body.length);
+    }
+
+    private static int align(int length) {
+        return (length + 7) & ~7;
+    }
+
+    private static ByteBuffer littleEndian(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // validity bitmap, or an empty buffer without nulls
+    private static ByteBuffer validity(boolean[] valid, int nullCount) {
+        if (nullCount == 0)
+            return ByteBuffer.allocate(0);
+
+        byte[] bits = new byte[(valid.length + 7) >>> 3];
+        for (int i = 0; i < valid.length; i++) {
+            if (valid[i])
+                bits[i >>> 3] |= 1 << (i & 7);
+        }
+        return ByteBuffer.wrap(bits);
+    }
+
+    private static int field(FlatBufferBuilder builder, String name, boolean nullable
+            , byte typeType, int type, int dictionary, int[] children) {
+        int nameOffset = builder.createString(name);
+        int childVector = builder.createOffsetVector(children);
+
+        builder.startTable(7);
+        builder.addOffset(0, nameOffset);
+        builder.addBoolean(1, nullable);
+        builder.addByte(2, typeType);
+        builder.addOffset(3, type);
+        if (dictionary != 0)
+            builder.addOffset(4, dictionary);
+        builder.addOffset(5, childVector);
+        return builder.endTable();
+    }
+
+    private static int doubleType(FlatBufferBuilder builder) {
+        builder.startTable(1);
+        builder.addShort(0, PRECISION_DOUBLE);
+        return builder.endTable();
+    }
+
+    // buffers of a record batch body with their offsets, nodes as (length, null count)
+    private static class Body {
+        private final List<long[]> nodes = new ArrayList<>();
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private final List<Long> offsets = new ArrayList<>();
+        private long length;
+
+        private void node(long length, long nullCount) {
+            nodes.add(new long[] {length, nullCount});
+        }
+
+        private void buffer(ByteBuffer buffer) {
+            buffers.add(buffer);
+            offsets.add(length);
+            length += align(buffer.remaining());
+        }
+    }
+
+    private static class Block {
+        private final long offset;
+        private final int metadataLength;
+        private final long bodyLength;
+
+        private Block(long offset, int metadataLength, long bodyLength) {
+            this.offset = offset;
+            this.metadataLength = metadataLength;
+            this.bodyLength = bodyLength;
+        }
+    }
+
+    private interface Column {
+        int field(FlatBufferBuilder builder);
+
+        void batch(int from, int to, Body body);
+    }
+
+    private static class StringColumn implements Column {
+        private final String name;
+        private final long id;
+        private final IdDictionary dictionary = new IdDictionary(1024);
+        private final int[] indices;
+
+        private StringColumn(String name, long id, IntFunction<String> values, int numberOfRows) {
+            this.name = name;
+            this.id = id;
+
+            // dictionary indices in order of appearance, -1 for nulls
+            indices = new int[numberOfRows];
+            for (int row = 0; row < numberOfRows; row++) {
+                String value = values.apply(row);
+                indices[row] = value == null ? -1 : dictionary.add(value);
+            }
+        }
+
+        @Override
+        public int field(FlatBufferBuilder builder) {
+            builder.startTable(0);
+            int utf8 = builder.endTable();
+
+            builder.startTable(2);
+            builder.addInt(0, 32);
+            builder.addBoolean(1, true);
+            int indexType = builder.endTable();
+
+            builder.startTable(4);
+            builder.addLong(0, id);
+            builder.addOffset(1, indexType);
+            int encoding = builder.endTable();
+
+            return ArrowFileWriter.field(builder, name, true, TYPE_UTF8, utf8, encoding, new int[0]);
+        }
+
+        @Override
+        public void batch(int from, int to, Body body) {
+            boolean[] valid = new boolean[to - from];
+            ByteBuffer data = littleEndian((to - from) * 4);
+            int nullCount = 0;
+
+            for (int row = from; row < to; row++) {
+                valid[row - from] = indices[row] >= 0;
+                nullCount += indices[row] >= 0 ? 0 : 1;
+                data.putInt(Math.max(indices[row], 0));
+            }
+
+            body.node(to - from, nullCount);
+            body.buffer(validity(valid, nullCount));
+            body.buffer(data.flip());
+        }
+
+        private void dictionaryBatch(Body body) {
+            int size = dictionary.size();
+            ByteBuffer offsets = littleEndian((size + 1) * 4);
+            var bytes = new ArrayList<byte[]>(size);
+
+            int offset = 0;
+            offsets.putInt(offset);
+            for (int i = 0; i < size; i++) {
+                byte[] value = dictionary.get(i).getBytes(StandardCharsets.UTF_8);
+                bytes.add(value);
+                offset += value.length;
+                offsets.putInt(offset);
+            }
+
+            ByteBuffer data = ByteBuffer.allocate(offset);
+            bytes.forEach(data::put);
+
+            body.node(size, 0);
+            body.buffer(ByteBuffer.allocate(0));
+            body.buffer(offsets.flip());
+            body.buffer(data.flip());
+        }
+    }
+
+    private static class DoubleColumn implements Column {
+        private final String name;
+        private final IntToDoubleFunction values;
+
+        private DoubleColumn(String name, IntToDoubleFunction values) {
+            this.name = name;
+            this.values = values;
+        }
+
+        @Override
+        public int field(FlatBufferBuilder builder) {
+            return ArrowFileWriter.field(builder, name, false, TYPE_FLOATING_POINT, doubleType(builder), 0, new int[0]);
+        }
+
+        @Override
+        public void batch(int from, int to, Body body) {
+            ByteBuffer data = littleEndian((to - from) * 8);
+            for (int row = from; row < to; row++)
+                data.putDouble(values.applyAsDouble(row));
+
+            body.node(to - from, 0);
+            body.buffer(ByteBuffer.allocate(0));
+            body.buffer(data.flip());
+        }
+    }
+
+    private static class DoubleListColumn implements Column {
+        private final String name;
+        private final IntFunction<List<Double>> values;
+
+        private DoubleListColumn(String name, IntFunction<List<Double>> values) {
+            this.name = name;
+            this.values = values;
+        }
+
+        @Override
+        public int field(FlatBufferBuilder builder) {
+            int item = ArrowFileWriter.field(builder, "item", true, TYPE_FLOATING_POINT, doubleType(builder)
+                    , 0, new int[0]);
+
+            builder.startTable(0);
+            int list = builder.endTable();
+
+            return ArrowFileWriter.field(builder, name, true, TYPE_LIST, list, 0, new int[] {item});
+        }
+
+        @Override
+        public void batch(int from, int to, Body body) {
+            boolean[] valid = new boolean[to - from];
+            ByteBuffer offsets = littleEndian((to - from + 1) * 4);
+            int nullCount = 0;
+
+            int offset = 0;
+            offsets.putInt(offset);
+            for (int row = from; row < to; row++) {
+                List<Double> list = values.apply(row);
+                valid[row - from] = list != null;
+                nullCount += list != null ? 0 : 1;
+                offset += list != null ? list.size() : 0;
+                offsets.putInt(offset);
+            }
+
+            ByteBuffer data = littleEndian(offset * 8);
+            for (int row = from; row < to; row++) {
+                List<Double> list = values.apply(row);
+                if (list != null)
+                    list.forEach(data::putDouble);
+            }
+
+            body.node(to - from, nullCount);
+            body.buffer(validity(valid, nullCount));
+            body.buffer(offsets.flip());
+
+            // the child float64 values
+            body.node(offset, 0);
+            body.buffer(ByteBuffer.allocate(0));
+            body.buffer(data.flip());
+        }
+    }
+}
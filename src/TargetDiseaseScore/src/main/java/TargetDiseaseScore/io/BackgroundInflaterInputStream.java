@@ -0,0 +1,146 @@
+package TargetDiseaseScore.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decompresses a gzip stream on a separate thread, so inflating
+ * overlaps with parsing of already decompressed blocks.
+ * A fixed set of blocks is recycled between the two threads.
+ * Inflaters of all streams share a pool with a thread per processor, a stream opened while
+ * the pool is busy waits for a free thread, so a reader must keep reading or close its stream.
+ */
+public class BackgroundInflaterInputStream extends InputStream {
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final int NUMBER_OF_BLOCKS = 4;
+
+    private static class Block {
+        final byte[] data = new byte[BLOCK_SIZE];
+        int length;
+    }
+
+    // marks the end of the decompressed data
+    private static final Block END = new Block();
+
+    private final BlockingQueue<Block> filled = new ArrayBlockingQueue<>(NUMBER_OF_BLOCKS + 1);
+    private final BlockingQueue<Block> free = new ArrayBlockingQueue<>(NUMBER_OF_BLOCKS);
+    private static final ExecutorService INFLATERS = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+                Thread thread = new Thread(r, "gzip-inflater");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final InputStream compressed;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Future<?> inflater;
+
+    private volatile Throwable failure;
+    private Block current;
+    private int position;
+
+    public BackgroundInflaterInputStream(InputStream compressed) {
+        for (int i = 0; i < NUMBER_OF_BLOCKS; i++) {
+            free.add(new Block());
+        }
+
+        this.compressed = compressed;
+        inflater = INFLATERS.submit(this::inflate);
+    }
+
+    private void inflate() {
+        // the stream has been closed before a thread got to it
+        if (!started.compareAndSet(false, true))
+            return;
+
+        boolean closed = false;
+        try (var in = new GZIPInputStream(compressed, BLOCK_SIZE)) {
+            while (true) {
+                Block block = free.take();
+
+                // fill the block completely unless the stream ends
+                int length = 0;
+                int read;
+                while (length < BLOCK_SIZE && (read = in.read(block.data, length, BLOCK_SIZE - length)) > 0) {
+                    length += read;
+                }
+
+                if (length == 0)
+                    break;
+
+                block.length = length;
+                filled.put(block);
+            }
+        } catch (InterruptedException ex) {
+            // the reader has closed the stream
+            closed = true;
+        } catch (Throwable ex) {
+            // anything that stops this thread is the reader's failure, or it would wait forever
+            failure = ex;
+        } finally {
+            if (!closed)
+                filled.add(END);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextBlock())
+            return -1;
+        return current.data[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!nextBlock())
+            return -1;
+
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (current == END)
+            return false;
+        if (current != null && position < current.length)
+            return true;
+
+        // hand the consumed block back to the inflater
+        if (current != null)
+            free.add(current);
+
+        try {
+            current = filled.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for decompressed data", ex);
+        }
+        position = 0;
+
+        if (current == END) {
+            if (failure != null)
+                throw new IOException("Decompression has failed...", failure);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.cancel(true);
+        // the inflater closes the compressed stream once started
+        if (started.compareAndSet(false, true))
+            compressed.close();
+    }
+}
@@ -0,0 +1,349 @@
+package TargetDiseaseScore.io;
+
+import TargetDiseaseScore.data.EvidenceAccumulator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Compact columnar binary cache of parsed inputs kept next to the input files.
+ * A cache file starts with a fingerprint of the input files (names, sizes and
+ * modification times) and is only used while the fingerprint matches.
+ * Evidence is stored as dictionary encoded ids plus score arrays,
+ * targets and diseases as string columns. Cache files are memory mapped on read.
+ */
+public class BinaryCache {
+    private BinaryCache() {}
+
+    private static final int MAGIC = 0x54444353;
+    private static final int VERSION = 1;
+
+    public static Path cacheFile(Path directory, String name) {
+        return directory.resolve(".overallscore-" + name + ".cache");
+    }
+
+    public static String fingerprint(Path directory, Predicate<Path> filter) throws IOException {
+        try (var files = Files.list(directory).filter(filter)) {
+            List<Path> sorted = files
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+                    .collect(Collectors.toList());
+
+            var fingerprint = new StringBuilder();
+            for (Path file : sorted) {
+                fingerprint.append(file.getFileName()).append('|')
+                        .append(Files.size(file)).append('|')
+                        .append(Files.getLastModifiedTime(file).toMillis()).append('\n');
+            }
+            return fingerprint.toString();
+        }
+    }
+
+    //
+    // evidence
+    //
+
+    /**
+     * Writes all scores of the accumulator. Nothing is written
+     * if any association keeps an approximate state only.
+     *
+     * @return true if the cache has been written
+     */
+    public static boolean writeEvidence(Path cacheFile, String fingerprint, EvidenceAccumulator evidence)
+            throws IOException {
+
+        for (int a = 0; a < evidence.size(); a++) {
+            if (!evidence.isExact(a))
+                return false;
+        }
+
+        write(cacheFile, fingerprint, out -> {
+            writeStrings(out, evidence.getTargets().size(), evidence.getTargets()::get);
+            writeStrings(out, evidence.getDiseases().size(), evidence.getDiseases()::get);
+
+            int size = evidence.size();
+            out.writeInt(size);
+            for (int a = 0; a < size; a++) {
+                out.writeInt(evidence.getTargetIndex(a));
+            }
+            for (int a = 0; a < size; a++) {
+                out.writeInt(evidence.getDiseaseIndex(a));
+            }
+            for (int a = 0; a < size; a++) {
+                out.writeInt(evidence.getCount(a));
+            }
+            for (int a = 0; a < size; a++) {
+                double[] scores = evidence.getScores(a);
+                for (int i = 0; i < evidence.getCount(a); i++) {
+                    out.writeDouble(scores[i]);
+                }
+            }
+        });
+
+        return true;
+    }
+
+    public static Optional<EvidenceAccumulator> readEvidence
+            (Path cacheFile, String fingerprint, int maxExactScores, int numberOfTopScores) throws IOException {
+
+        try (var in = Reader.open(cacheFile, fingerprint)) {
+            if (in == null)
+                return Optional.empty();
+
+            var evidence = new EvidenceAccumulator(maxExactScores, numberOfTopScores);
+
+            // every count and index is checked against the file, a corrupt cache is a cache miss
+            int targets = in.readCount(Integer.BYTES);
+            for (int i = 0; i < targets; i++) {
+                evidence.getTargets().add(in.readString());
+            }
+            int diseases = in.readCount(Integer.BYTES);
+            for (int i = 0; i < diseases; i++) {
+                evidence.getDiseases().add(in.readString());
+            }
+
+            int size = in.readCount(3 * Integer.BYTES);
+            int[] targetIndices = in.readInts(size);
+            int[] diseaseIndices = in.readInts(size);
+            int[] counts = in.readInts(size);
+
+            long numberOfScores = 0;
+            for (int a = 0; a < size; a++) {
+                if (targetIndices[a] < 0 || targetIndices[a] >= evidence.getTargets().size()
+                        || diseaseIndices[a] < 0 || diseaseIndices[a] >= evidence.getDiseases().size()
+                        || counts[a] < 0)
+                    throw new IOException("Cache file is corrupt: bad association " + a);
+                numberOfScores += counts[a];
+            }
+            if (numberOfScores * Double.BYTES != in.remaining())
+                throw new IOException("Cache file is corrupt: " + numberOfScores + " scores expected");
+
+            for (int a = 0; a < size; a++) {
+                evidence.addAll(targetIndices[a], diseaseIndices[a], in.readDoubles(counts[a]));
+            }
+
+            return Optional.of(evidence);
+        } catch (RuntimeException ex) {
+            throw new IOException("Cache file is corrupt", ex);
+        }
+    }
+
+    //
+    // string columns
+    //
+
+    public static void writeColumns(Path cacheFile, String fingerprint, List<String[]> columns) throws IOException {
+        write(cacheFile, fingerprint, out -> {
+            out.writeInt(columns.size());
+            for (String[] column : columns) {
+                writeStrings(out, column.length, i -> column[i]);
+            }
+        });
+    }
+
+    public static Optional<List<String[]>> readColumns(Path cacheFile, String fingerprint) throws IOException {
+        try (var in = Reader.open(cacheFile, fingerprint)) {
+            if (in == null)
+                return Optional.empty();
+
+            String[][] columns = new String[in.readCount(Integer.BYTES)][];
+            for (int c = 0; c < columns.length; c++) {
+                columns[c] = new String[in.readCount(Integer.BYTES)];
+                for (int i = 0; i < columns[c].length; i++) {
+                    columns[c][i] = in.readString();
+                }
+            }
+
+            if (in.remaining() != 0)
+                throw new IOException("Cache file is corrupt: " + in.remaining() + " bytes left over");
+
+            return Optional.of(List.of(columns));
+        } catch (RuntimeException ex) {
+            throw new IOException("Cache file is corrupt", ex);
+        }
+    }
+
+    //
+    // low level
+    //
+
+    @FunctionalInterface
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface IndexedString {
+        String get(int index);
+    }
+
+    private static void write(Path cacheFile, String fingerprint, Body body) throws IOException {
+        // write next to the target and swap in, so readers never see a partial file
+        Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, fingerprint);
+                body.write(out);
+            }
+
+            try {
+                Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                // no atomic rename on this filesystem, a reader racing the swap ignores the unreadable cache
+                Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException ex) {
+            // never leave the temporary file behind
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                ex.addSuppressed(suppressed);
+            }
+            throw ex;
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, int size, IndexedString strings) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            writeString(out, strings.get(i));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a cache file through a sliding memory mapped window.
+     */
+    private static class Reader implements AutoCloseable {
+        private static final long WINDOW_SIZE = 1L << 28;
+
+        private final FileChannel channel;
+        private final long size;
+        private ByteBuffer window;
+        private long windowStart;
+        private byte[] stringBuffer = new byte[256];
+
+        private Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.window = ByteBuffer.allocate(0);
+        }
+
+        // null if there is no usable cache
+        static Reader open(Path cacheFile, String fingerprint) throws IOException {
+            if (!Files.isRegularFile(cacheFile))
+                return null;
+
+            var reader = new Reader(FileChannel.open(cacheFile, StandardOpenOption.READ));
+            try {
+                if (reader.size < 8 || reader.readInt() != MAGIC || reader.readInt() != VERSION
+                        || !fingerprint.equals(reader.readString())) {
+                    reader.close();
+                    return null;
+                }
+                return reader;
+            } catch (IOException | RuntimeException ex) {
+                reader.close();
+                throw ex;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() >= bytes)
+                return;
+
+            long position = windowStart + window.position();
+            if (position + bytes > size)
+                throw new IOException("Cache file is truncated");
+
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position
+                    , Math.min(Math.max(WINDOW_SIZE, bytes), size - position));
+        }
+
+        int readInt() throws IOException {
+            ensure(Integer.BYTES);
+            return window.getInt();
+        }
+
+        long remaining() {
+            return size - windowStart - window.position();
+        }
+
+        // a count of elements of at least the given size each, that have to fit in the rest of the file
+        int readCount(int elementBytes) throws IOException {
+            int count = readInt();
+            if (count < 0 || (long) count * elementBytes > remaining())
+                throw new IOException("Cache file is corrupt: bad count " + count);
+            return count;
+        }
+
+        int[] readInts(int count) throws IOException {
+            int[] values = new int[count];
+            int chunk = (int) (WINDOW_SIZE / Integer.BYTES);
+            for (int from = 0; from < count; from += chunk) {
+                int n = Math.min(chunk, count - from);
+                ensure(n * Integer.BYTES);
+                window.asIntBuffer().get(values, from, n);
+                window.position(window.position() + n * Integer.BYTES);
+            }
+            return values;
+        }
+
+        double[] readDoubles(int count) throws IOException {
+            double[] values = new double[count];
+            int chunk = (int) (WINDOW_SIZE / Double.BYTES);
+            for (int from = 0; from < count; from += chunk) {
+                int n = Math.min(chunk, count - from);
+                ensure(n * Double.BYTES);
+                window.asDoubleBuffer().get(values, from, n);
+                window.position(window.position() + n * Double.BYTES);
+            }
+            return values;
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            if (length == -1)
+                return null;
+            if (length < 0)
+                throw new IOException("Cache file is corrupt: bad string length " + length);
+
+            ensure(length);
+            if (stringBuffer.length < length)
+                stringBuffer = new byte[length];
+            window.get(stringBuffer, 0, length);
+            return new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
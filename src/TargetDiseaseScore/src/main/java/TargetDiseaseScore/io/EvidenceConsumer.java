@@ -0,0 +1,6 @@
+package TargetDiseaseScore.io;
+
+@FunctionalInterface
+public interface EvidenceConsumer {
+    void accept(int targetIndex, int diseaseIndex, double score);
+}
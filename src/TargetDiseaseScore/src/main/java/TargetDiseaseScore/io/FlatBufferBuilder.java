@@ -0,0 +1,221 @@
+package TargetDiseaseScore.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal FlatBuffers builder, enough for the Arrow IPC metadata: tables with scalar,
+ * offset and inline struct fields, strings and vectors. Like the reference builder it
+ * writes back to front, so children are created before the table that refers to them,
+ * and offsets are distances from the end of the buffer.
+ */
+class FlatBufferBuilder {
+    private byte[] buffer = new byte[1024];
+    private int space = buffer.length;
+    private int minAlign = 1;
+
+    private int[] vtable;
+    private int objectStart;
+
+    /**
+     * Bytes written so far, the offset of the last object created.
+     */
+    int offset() {
+        return buffer.length - space;
+    }
+
+    // pads so that after additional bytes the next value of the size is aligned
+    void prep(int size, int additionalBytes) {
+        minAlign = Math.max(minAlign, size);
+        int alignSize = -(offset() + additionalBytes) & (size - 1);
+        grow(alignSize + size + additionalBytes);
+        pad(alignSize);
+    }
+
+    void pad(int bytes) {
+        grow(bytes);
+        for (int i = 0; i < bytes; i++)
+            buffer[--space] = 0;
+    }
+
+    void putByte(byte value) {
+        buffer[--space] = value;
+    }
+
+    void putShort(short value) {
+        putByte((byte) (value >> 8));
+        putByte((byte) value);
+    }
+
+    void putInt(int value) {
+        putShort((short) (value >> 16));
+        putShort((short) value);
+    }
+
+    void putLong(long value) {
+        putInt((int) (value >> 32));
+        putInt((int) value);
+    }
+
+    void addByte(byte value) {
+        prep(1, 0);
+        putByte(value);
+    }
+
+    void addShort(short value) {
+        prep(2, 0);
+        putShort(value);
+    }
+
+    void addInt(int value) {
+        prep(4, 0);
+        putInt(value);
+    }
+
+    void addLong(long value) {
+        prep(8, 0);
+        putLong(value);
+    }
+
+    // offsets are stored relative to where they are stored
+    void addOffset(int offset) {
+        prep(4, 0);
+        putInt(offset() - offset + 4);
+    }
+
+    int createString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        prep(4, bytes.length + 1);
+        putByte((byte) 0);
+        grow(bytes.length);
+        space -= bytes.length;
+        System.arraycopy(bytes, 0, buffer, space, bytes.length);
+        putInt(bytes.length);
+        return offset();
+    }
+
+    /**
+     * Elements are then put in reverse order, structs with their own prep.
+     */
+    void startVector(int elementSize, int numberOfElements, int alignment) {
+        prep(4, elementSize * numberOfElements);
+        prep(alignment, elementSize * numberOfElements);
+    }
+
+    int endVector(int numberOfElements) {
+        putInt(numberOfElements);
+        return offset();
+    }
+
+    int createOffsetVector(int[] offsets) {
+        startVector(4, offsets.length, 4);
+        for (int i = offsets.length - 1; i >= 0; i--)
+            addOffset(offsets[i]);
+        return endVector(offsets.length);
+    }
+
+    void startTable(int numberOfFields) {
+        vtable = new int[numberOfFields];
+        objectStart = offset();
+    }
+
+    // scalar fields equal to their schema default are left out
+    void addBoolean(int field, boolean value) {
+        if (value) {
+            addByte((byte) 1);
+            slot(field);
+        }
+    }
+
+    void addByte(int field, byte value) {
+        if (value != 0) {
+            addByte(value);
+            slot(field);
+        }
+    }
+
+    void addShort(int field, short value) {
+        if (value != 0) {
+            addShort(value);
+            slot(field);
+        }
+    }
+
+    void addInt(int field, int value) {
+        if (value != 0) {
+            addInt(value);
+            slot(field);
+        }
+    }
+
+    void addLong(int field, long value) {
+        if (value != 0) {
+            addLong(value);
+            slot(field);
+        }
+    }
+
+    void addOffset(int field, int offset) {
+        addOffset(offset);
+        slot(field);
+    }
+
+    /**
+     * Marks the struct just put inline as the given field.
+     */
+    void slot(int field) {
+        vtable[field] = offset();
+    }
+
+    int endTable() {
+        addInt(0);
+        int objectOffset = offset();
+
+        int numberOfFields = vtable.length;
+        while (numberOfFields > 0 && vtable[numberOfFields - 1] == 0)
+            numberOfFields--;
+
+        // field offsets from the table start, then table size and vtable size
+        for (int field = numberOfFields - 1; field >= 0; field--)
+            addShort((short) (vtable[field] != 0 ? objectOffset - vtable[field] : 0));
+        addShort((short) (objectOffset - objectStart));
+        addShort((short) ((numberOfFields + 2) * 2));
+
+        // the table starts with the signed distance back to its vtable
+        int vtableOffset = offset();
+        int tablePosition = buffer.length - objectOffset;
+        int distance = vtableOffset - objectOffset;
+        buffer[tablePosition] = (byte) distance;
+        buffer[tablePosition + 1] = (byte) (distance >> 8);
+        buffer[tablePosition + 2] = (byte) (distance >> 16);
+        buffer[tablePosition + 3] = (byte) (distance >> 24);
+
+        vtable = null;
+        return objectOffset;
+    }
+
+    /**
+     * The finished buffer with the root table offset at its start.
+     */
+    byte[] finish(int rootTable) {
+        prep(minAlign, 4);
+        addOffset(rootTable);
+        return Arrays.copyOfRange(buffer, space, buffer.length);
+    }
+
+    // keeps the written bytes at the end of a bigger array
+    private void grow(int bytes) {
+        if (space >= bytes)
+            return;
+
+        int written = offset();
+        int capacity = buffer.length;
+        while (capacity - written < bytes)
+            capacity *= 2;
+
+        byte[] grown = new byte[capacity];
+        System.arraycopy(buffer, space, grown, capacity - written, written);
+        buffer = grown;
+        space = capacity - written;
+    }
+}
@@ -1,20 +1,31 @@
 package TargetDiseaseScore.io;
 
+import TargetDiseaseScore.data.IdDictionary;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class JsonIO {
     private final ObjectMapper mapper;
+    private final JsonLinesWriter linesWriter;
 
     public JsonIO() {
         mapper = new ObjectMapper();
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         mapper.configure(SerializationFeature.CLOSE_CLOSEABLE, false);
+        linesWriter = new JsonLinesWriter(mapper);
     }
 
     public <T> T stringToObj(String jsonString, Class<T> type) {
@@ -25,17 +36,153 @@ public class JsonIO {
         }
     }
 
+    public <T> void readObjects(InputStream in, Class<T> type, Consumer<T> consumer) {
+        try (MappingIterator<T> objects = mapper.readerFor(type).readValues(in)) {
+            objects.forEachRemaining(consumer);
+        } catch (IOException | RuntimeJsonMappingException ex) {
+            throw new RuntimeException("JSON mapping has failed...", ex);
+        }
+    }
+
+    public void readEvidence(InputStream in
+            , IdDictionary targets, IdDictionary diseases, EvidenceConsumer consumer) {
+
+        // stream tokens straight from the bytes and pick up only
+        // the three fields we need, everything else is skipped;
+        // ids are resolved against the dictionaries from the parser buffer
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT)
+                    throw new RuntimeException("JSON evidence parsing has failed: object expected at "
+                            + parser.getCurrentLocation());
+
+                int targetIndex = -1;
+                int diseaseIndex = -1;
+                double score = 0.0;
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    // field names are canonicalized by the parser, no copies here
+                    String field = parser.getCurrentName();
+                    token = parser.nextToken();
+
+                    switch (field) {
+                        case "targetId":
+                            targetIndex = addId(parser, token, targets);
+                            break;
+                        case "diseaseId":
+                            diseaseIndex = addId(parser, token, diseases);
+                            break;
+                        case "score":
+                            // a structured score is skipped as a whole, the parser stays on this object
+                            if (token.isScalarValue())
+                                score = parser.getValueAsDouble();
+                            else
+                                parser.skipChildren();
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                }
+
+                if (targetIndex < 0 || diseaseIndex < 0)
+                    throw new RuntimeException("JSON evidence parsing has failed: targetId or diseaseId is missing at "
+                            + parser.getCurrentLocation());
+
+                consumer.accept(targetIndex, diseaseIndex, score);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("JSON evidence parsing has failed...", ex);
+        }
+    }
+
+    /**
+     * Streams key and value fields of json objects, all other fields are skipped.
+     * With a key dictionary only objects with known keys are passed on,
+     * and their values are only materialized for those.
+     */
+    public void readProjection(InputStream in, String keyField, String valueField
+            , IdDictionary keys, ProjectionConsumer consumer) {
+
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT)
+                    throw new RuntimeException("JSON projection parsing has failed: object expected at "
+                            + parser.getCurrentLocation());
+
+                String key = null;
+                String value = null;
+                boolean skip = false;
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    token = parser.nextToken();
+
+                    if (!skip && field.equals(keyField) && token == JsonToken.VALUE_STRING) {
+                        if (keys == null) {
+                            key = parser.getText();
+                        } else {
+                            int index = keys.indexOf(parser.getTextCharacters()
+                                    , parser.getTextOffset(), parser.getTextLength());
+                            if (index < 0)
+                                skip = true;
+                            else
+                                key = keys.get(index);
+                        }
+                    } else if (!skip && field.equals(valueField) && token.isScalarValue()) {
+                        // only scalar values, structured ones are skipped with all their fields
+                        value = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+
+                if (!skip && key != null)
+                    consumer.accept(key, value);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("JSON projection parsing has failed...", ex);
+        }
+    }
+
+    private static int addId(JsonParser parser, JsonToken token, IdDictionary dictionary) throws IOException {
+        if (token != JsonToken.VALUE_STRING)
+            return -1;
+        return dictionary.add(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+
     public void ObjToJson(List<?> list, BufferedWriter writer) {
 
         list.forEach(a -> {
             try {
                 writer.write(mapper.writeValueAsString(a));
-                writer.newLine();
+                // json-lines end with '\n' on every platform
+                writer.write('\n');
             } catch (IOException ex) {
                 throw new RuntimeException("JSON write has failed...", ex);
             }
         });
     }
+
+    /**
+     * Same lines as ObjToJson, encoded in parallel chunks without
+     * intermediate strings, for large lists.
+     */
+    public void ObjToJsonFile(List<?> list, Path file) {
+        linesWriter.write(list, file);
+    }
+
+    /**
+     * The lines split into gzip compressed part files, by the hash of the partition key
+     * or, without a key, into contiguous ranges of rows.
+     *
+     * @return the part files in partition order
+     */
+    public <T> List<Path> ObjToJsonPartitions(List<T> list, Path directory, int numberOfPartitions
+            , Function<T, String> partitionKey) {
+        return linesWriter.writePartitions(list, directory, numberOfPartitions, partitionKey);
+    }
 }
 
 
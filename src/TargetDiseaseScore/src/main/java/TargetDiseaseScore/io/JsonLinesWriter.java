@@ -0,0 +1,207 @@
+package TargetDiseaseScore.io;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a list as json-lines, one object per line in list order. Chunks of the list are
+ * encoded straight to bytes on the common pool into buffers reused from window to window,
+ * while the previous window of chunks is written to the file channel.
+ * Partitioned output writes every partition to its own gzip file, compressed on a bounded
+ * executor of its own with at most one thread per processor.
+ */
+class JsonLinesWriter {
+    private static final int CHUNK_SIZE = 1024;
+    private static final String PART_PREFIX = "part-";
+    private static final String PART_SUFFIX = ".json.gz";
+
+    private final JsonFactory factory;
+    private final ObjectWriter writer;
+
+    JsonLinesWriter(ObjectMapper mapper) {
+        // lines are separated by hand, not by the root value separator
+        this.factory = mapper.getFactory().copy().setRootValueSeparator(null);
+        this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    void write(List<?> list, Path file) {
+        int numberOfChunks = (list.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int window = ForkJoinPool.getCommonPoolParallelism() * 2;
+
+        // two sets of buffers: one being encoded while the other is written
+        ChunkBuffer[][] buffers = new ChunkBuffer[2][window];
+        for (ChunkBuffer[] set : buffers)
+            for (int i = 0; i < window; i++)
+                set[i] = new ChunkBuffer();
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE
+                , StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            ForkJoinTask<?> encoding = encode(list, 0, Math.min(window, numberOfChunks), buffers[0]);
+            for (int first = 0, set = 0; first < numberOfChunks; first += window, set ^= 1) {
+                encoding.join();
+
+                int next = first + window;
+                encoding = encode(list, next, Math.min(next + window, numberOfChunks), buffers[set ^ 1]);
+
+                for (int chunk = first; chunk < Math.min(next, numberOfChunks); chunk++) {
+                    ByteBuffer bytes = buffers[set][chunk - first].asByteBuffer();
+                    while (bytes.hasRemaining())
+                        channel.write(bytes);
+                }
+            }
+            encoding.join();
+        } catch (IOException ex) {
+            throw new RuntimeException("Writing json lines: something bad happened with IO: ", ex);
+        }
+    }
+
+    /**
+     * Writes part-00000.json.gz, ... into the directory, replacing the parts of an earlier run.
+     * With a partition key a row goes to the partition of its key hash, otherwise
+     * the list is cut into contiguous ranges of equal row count; rows keep list order within a part.
+     */
+    <T> List<Path> writePartitions(List<T> list, Path directory, int numberOfPartitions
+            , Function<T, String> partitionKey) {
+
+        int[][] partitions = partitionKey == null
+                ? rangePartitions(list.size(), numberOfPartitions)
+                : hashPartitions(list, numberOfPartitions, partitionKey);
+
+        try {
+            Files.createDirectories(directory);
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    if (name.startsWith(PART_PREFIX) && name.endsWith(PART_SUFFIX))
+                        Files.delete(file);
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Preparing json partitions: something bad happened with IO: ", ex);
+        }
+
+        // partitions are compressed on their own threads, at most one per processor,
+        // so they do not take the common pool from the pair search
+        int numberOfThreads = Math.max(1, Math.min(numberOfPartitions, Runtime.getRuntime().availableProcessors()));
+        ExecutorService compressors = Executors.newFixedThreadPool(numberOfThreads, r -> {
+            Thread thread = new Thread(r, "json-partition");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<CompletableFuture<Path>> files = IntStream.range(0, numberOfPartitions)
+                    .mapToObj(partition -> CompletableFuture.supplyAsync(() -> {
+                        Path file = directory.resolve(String.format("%s%05d%s", PART_PREFIX, partition, PART_SUFFIX));
+                        writePartition(list, partitions[partition], file);
+                        return file;
+                    }, compressors))
+                    .collect(Collectors.toList());
+
+            return files.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException ex) {
+            // report the failure of the partition itself
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw ex;
+        } finally {
+            compressors.shutdown();
+        }
+    }
+
+    private void writePartition(List<?> list, int[] rows, Path file) {
+        try (JsonGenerator generator = factory.createGenerator(new GZIPOutputStream
+                (Files.newOutputStream(file), 1 << 16))) {
+            for (int row : rows) {
+                writer.writeValue(generator, list.get(row));
+                generator.writeRaw('\n');
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Writing a json partition: something bad happened with IO: ", ex);
+        }
+    }
+
+    // contiguous row ranges, sizes differ by at most one row
+    private static int[][] rangePartitions(int numberOfRows, int numberOfPartitions) {
+        int[][] partitions = new int[numberOfPartitions][];
+        for (int partition = 0; partition < numberOfPartitions; partition++) {
+            int from = (int) ((long) numberOfRows * partition / numberOfPartitions);
+            int to = (int) ((long) numberOfRows * (partition + 1) / numberOfPartitions);
+            partitions[partition] = IntStream.range(from, to).toArray();
+        }
+        return partitions;
+    }
+
+    // rows by the hash of their key, in list order within a partition
+    private static <T> int[][] hashPartitions(List<T> list, int numberOfPartitions, Function<T, String> partitionKey) {
+        int[] partitionOf = new int[list.size()];
+        int[] sizes = new int[numberOfPartitions];
+        for (int row = 0; row < list.size(); row++) {
+            partitionOf[row] = Math.floorMod(partitionKey.apply(list.get(row)).hashCode(), numberOfPartitions);
+            sizes[partitionOf[row]]++;
+        }
+
+        int[][] partitions = new int[numberOfPartitions][];
+        for (int partition = 0; partition < numberOfPartitions; partition++)
+            partitions[partition] = new int[sizes[partition]];
+
+        int[] cursor = new int[numberOfPartitions];
+        for (int row = 0; row < list.size(); row++)
+            partitions[partitionOf[row]][cursor[partitionOf[row]]++] = row;
+        return partitions;
+    }
+
+    private ForkJoinTask<?> encode(List<?> list, int fromChunk, int toChunk, ChunkBuffer[] buffers) {
+        return ForkJoinPool.commonPool().submit(() -> IntStream.range(fromChunk, toChunk)
+                .parallel()
+                .forEach(chunk -> encode(list, chunk, buffers[chunk - fromChunk])));
+    }
+
+    private void encode(List<?> list, int chunk, ChunkBuffer buffer) {
+        buffer.reset();
+        int to = Math.min((chunk + 1) * CHUNK_SIZE, list.size());
+
+        try (JsonGenerator generator = factory.createGenerator(buffer)) {
+            for (int i = chunk * CHUNK_SIZE; i < to; i++) {
+                writer.writeValue(generator, list.get(i));
+                generator.writeRaw('\n');
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Encoding json lines: something bad happened with IO: ", ex);
+        }
+    }
+
+    // grows once to the largest chunk, then its array is reused without copies
+    private static class ChunkBuffer extends ByteArrayOutputStream {
+        private ChunkBuffer() {
+            super(1 << 16);
+        }
+
+        private ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package TargetDiseaseScore.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@FunctionalInterface
+public interface JsonSource {
+    InputStream open() throws IOException;
+}
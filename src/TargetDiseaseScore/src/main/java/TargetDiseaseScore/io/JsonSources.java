@@ -0,0 +1,41 @@
+package TargetDiseaseScore.io;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Lists json-lines sources of a directory: plain *.json files are
+ * memory mapped in newline aligned chunks, *.json.gz files are read
+ * as a whole and decompressed on a background thread.
+ */
+public class JsonSources {
+    private JsonSources() {}
+
+    public static List<JsonSource> list(Path directory, Predicate<Path> filter) throws IOException {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        try (var files = Files.list(directory).filter(filter)) {
+            List<JsonSource> sources = new ArrayList<>();
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (isGzip(file)) {
+                    sources.add(() -> new BackgroundInflaterInputStream(Files.newInputStream(file)));
+                } else {
+                    for (var chunk : MappedJsonLines.split(file, cores)) {
+                        sources.add(() -> new ByteBufferBackedInputStream(chunk.duplicate()));
+                    }
+                }
+            }
+            return sources;
+        }
+    }
+
+    public static boolean isGzip(Path file) {
+        return file.getFileName().toString().endsWith(".gz");
+    }
+}
@@ -0,0 +1,74 @@
+package TargetDiseaseScore.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory maps json-lines files in newline aligned chunks,
+ * so a single large file can be parsed by several workers
+ * straight from the mapped bytes.
+ */
+public class MappedJsonLines {
+    private MappedJsonLines() {}
+
+    // smaller files are not worth splitting
+    public static final long MIN_CHUNK_SIZE = 1L << 20;
+
+    // a single mapping is limited to 2 GB
+    private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE - (1L << 20);
+
+    public static List<ByteBuffer> split(Path file, int numberOfChunks) throws IOException {
+        return split(file, numberOfChunks, MIN_CHUNK_SIZE);
+    }
+
+    public static List<ByteBuffer> split(Path file, int numberOfChunks, long minChunkSize) throws IOException {
+        if (numberOfChunks < 1)
+            throw new IllegalArgumentException("Number of chunks should be positive: " + numberOfChunks);
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            long chunkSize = Math.max(minChunkSize, (size + numberOfChunks - 1) / numberOfChunks);
+            chunkSize = Math.max(1, Math.min(chunkSize, MAX_CHUNK_SIZE));
+
+            List<ByteBuffer> chunks = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                // extend each chunk to the end of the line it stops in
+                long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size);
+                if (end - start > Integer.MAX_VALUE)
+                    throw new IOException("A single json line is too long to be mapped in " + file);
+
+                // the mapping stays valid after the channel is closed
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                start = end;
+            }
+
+            return chunks;
+        }
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0)
+                break;
+
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n')
+                    return position + i + 1;
+            }
+            position += read;
+        }
+
+        return size;
+    }
+}
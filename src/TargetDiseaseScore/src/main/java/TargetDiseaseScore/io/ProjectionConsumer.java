@@ -0,0 +1,6 @@
+package TargetDiseaseScore.io;
+
+@FunctionalInterface
+public interface ProjectionConsumer {
+    void accept(String key, String value);
+}
@@ -0,0 +1,6 @@
+package TargetDiseaseScore.io;
+
+@FunctionalInterface
+public interface TargetPairConsumer {
+    void accept(String targetIdA, String targetIdB, String[] diseasesShared, double similarity);
+}
@@ -0,0 +1,107 @@
+package TargetDiseaseScore.io;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Target pairs streamed to json-lines segment files, one segment per worker,
+ * so memory does not depend on the number of pairs. Each line has the target
+ * ids, shared diseases and similarity fields of a serialized TargetOverlapPair.
+ */
+public class TargetPairSegments implements Closeable {
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".json";
+
+    private final JsonFactory factory = new JsonFactory().setRootValueSeparator(null);
+    private final Path directory;
+    private final List<Segment> segments = new ArrayList<>();
+
+    public TargetPairSegments(Path directory) {
+        this.directory = directory;
+
+        // segments of an earlier run would mix with the new ones
+        try {
+            Files.createDirectories(directory);
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    if (name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                        Files.delete(file);
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Preparing target pair segments: something bad happened with IO: ", ex);
+        }
+    }
+
+    /**
+     * Opens the next segment file, the returned consumer is for a single thread.
+     */
+    public synchronized TargetPairConsumer newSegment() {
+        Path file = directory.resolve(String.format("%s%05d%s", PREFIX, segments.size(), SUFFIX));
+        try {
+            var segment = new Segment(file, factory.createGenerator
+                    (new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)));
+            segments.add(segment);
+            return segment;
+        } catch (IOException ex) {
+            throw new RuntimeException("Opening a target pair segment: something bad happened with IO: ", ex);
+        }
+    }
+
+    public synchronized List<Path> getSegments() {
+        var files = new ArrayList<Path>();
+        segments.forEach(segment -> files.add(segment.file));
+        return files;
+    }
+
+    @Override
+    public synchronized void close() {
+        IOException failure = null;
+        for (Segment segment : segments) {
+            try {
+                segment.generator.close();
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+        if (failure != null)
+            throw new RuntimeException("Closing target pair segments: something bad happened with IO: ", failure);
+    }
+
+    private static class Segment implements TargetPairConsumer {
+        private final Path file;
+        private final JsonGenerator generator;
+
+        private Segment(Path file, JsonGenerator generator) {
+            this.file = file;
+            this.generator = generator;
+        }
+
+        @Override
+        public void accept(String targetIdA, String targetIdB, String[] diseasesShared, double similarity) {
+            try {
+                generator.writeStartObject();
+                generator.writeStringField("targetIdA", targetIdA);
+                generator.writeStringField("targetIdB", targetIdB);
+                generator.writeArrayFieldStart("diseasesShared");
+                for (String disease : diseasesShared)
+                    generator.writeString(disease);
+                generator.writeEndArray();
+                generator.writeNumberField("similarity", similarity);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException ex) {
+                throw new RuntimeException("Writing a target pair: something bad happened with IO: ", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package TargetDiseaseScore.search;
+
+import TargetDiseaseScore.data.AssociationKey;
+import TargetDiseaseScore.dto.TargetOverlapPair;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Approximate target pair search. Every target gets a MinHash signature of its diseases,
+ * signatures are cut into bands and targets with an identical band become candidate pairs (LSH).
+ * A pair with Jaccard similarity J is a candidate with probability 1 - (1 - J^rows)^bands,
+ * so more bands raise recall and more rows per band raise precision.
+ * Candidates are either accepted on the shared count estimated from their signatures
+ * or verified exactly against the disease lists.
+ * Buckets with more than {@link #MAX_BUCKET_SIZE} targets are skipped in their band,
+ * their quadratic number of pairs could exhaust the heap and such a bucket, e.g. the many
+ * targets of one popular disease only, says little about similarity. Its pairs can still
+ * become candidates in other bands.
+ */
+public class MinHashSearch {
+    /**
+     * Largest bucket whose targets are paired, at most about half a million pairs per bucket.
+     */
+    public static final int MAX_BUCKET_SIZE = 1000;
+
+    private final OverlapIndex index;
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+    private final int maxBucketSize;
+    private final int[] signatures;
+
+    public MinHashSearch(OverlapIndex index, int bands, int rows) {
+        this(index, bands, rows, MAX_BUCKET_SIZE);
+    }
+
+    MinHashSearch(OverlapIndex index, int bands, int rows, int maxBucketSize) {
+        if (bands < 1 || rows < 1)
+            throw new IllegalArgumentException("Bands and rows have to be positive: " + bands + ", " + rows);
+
+        this.index = index;
+        this.bands = bands;
+        this.rows = rows;
+        this.maxBucketSize = maxBucketSize;
+
+        // fixed seeds keep runs reproducible
+        this.seeds = new long[bands * rows];
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < seeds.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            seeds[i] = mix(seed);
+        }
+
+        this.signatures = signatures();
+    }
+
+    /**
+     * Jaccard similarity around which the candidate probability rises steeply,
+     * pairs well below it are rarely candidates, pairs well above it almost always.
+     */
+    public static double threshold(int bands, int rows) {
+        return Math.pow(1.0 / bands, 1.0 / rows);
+    }
+
+    /**
+     * Probability that a pair with the given Jaccard similarity becomes a candidate.
+     */
+    public static double candidateProbability(double jaccard, int bands, int rows) {
+        return 1 - Math.pow(1 - Math.pow(jaccard, rows), bands);
+    }
+
+    /**
+     * Number of pairs sharing at least min shared diseases among the LSH candidates,
+     * exact per candidate when verified, from the signature estimate otherwise.
+     */
+    public long countPairs(int minOfSharedDiseases, boolean verify) {
+        int minShared = Math.max(minOfSharedDiseases, 1);
+
+        return Arrays.stream(candidates(minShared))
+                .parallel()
+                .filter(pair -> verify
+                        ? sharedCount(AssociationKey.first(pair), AssociationKey.second(pair)) >= minShared
+                        : Math.round(estimatedSharedCount(AssociationKey.first(pair)
+                        , AssociationKey.second(pair))) >= minShared)
+                .count();
+    }
+
+    /**
+     * Candidate pairs verified exactly: every pair found shares at least min shared diseases,
+     * pairs that never became candidates are missed.
+     */
+    public List<TargetOverlapPair> findPairs(int minOfSharedDiseases) {
+        int minShared = Math.max(minOfSharedDiseases, 1);
+
+        return Arrays.stream(candidates(minShared))
+                .parallel()
+                .filter(pair -> sharedCount(AssociationKey.first(pair), AssociationKey.second(pair)) >= minShared)
+                .mapToObj(pair -> new TargetOverlapPair
+                        (index.getTargets().get(AssociationKey.first(pair))
+                                , index.getTargets().get(AssociationKey.second(pair))
+                                , sharedDiseases(AssociationKey.first(pair), AssociationKey.second(pair))))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Jaccard similarity of two targets estimated from their signatures.
+     */
+    public double estimatedJaccard(int targetA, int targetB) {
+        int length = seeds.length;
+
+        int matches = 0;
+        for (int i = 0; i < length; i++) {
+            if (signatures[targetA * length + i] == signatures[targetB * length + i])
+                matches++;
+        }
+        return (double) matches / length;
+    }
+
+    // |A n B| = J (|A| + |B|) / (1 + J)
+    private double estimatedSharedCount(int targetA, int targetB) {
+        double jaccard = estimatedJaccard(targetA, targetB);
+        return jaccard * (index.getDegree(targetA) + index.getDegree(targetB)) / (1 + jaccard);
+    }
+
+    // sorted, distinct candidate pairs packed as (smaller target, larger target)
+    private long[] candidates(int minShared) {
+        int numberOfTargets = index.getNumberOfTargets();
+
+        // targets are ordered by degree, those under min shared cannot qualify
+        int first = 0;
+        while (first < numberOfTargets && index.getDegree(first) < minShared)
+            first++;
+        int firstCandidate = first;
+
+        long[] candidates = IntStream.range(0, bands)
+                .parallel()
+                .mapToObj(band -> {
+                    // bucket targets by the hash of their band, sorting packed (bucket, target)
+                    long[] buckets = new long[numberOfTargets - firstCandidate];
+                    for (int target = firstCandidate; target < numberOfTargets; target++) {
+                        long hash = band;
+                        for (int row = 0; row < rows; row++)
+                            hash = mix(hash * 31 + signatures[target * seeds.length + band * rows + row]);
+                        buckets[target - firstCandidate] = (hash << 32) | target;
+                    }
+                    Arrays.sort(buckets);
+
+                    // every two targets in a bucket make a candidate pair, oversized buckets are skipped
+                    var pairs = new LongArray();
+                    for (int from = 0, to; from < buckets.length; from = to) {
+                        long bucket = buckets[from] >>> 32;
+                        to = from + 1;
+                        while (to < buckets.length && buckets[to] >>> 32 == bucket)
+                            to++;
+
+                        if (to - from > maxBucketSize)
+                            continue;
+
+                        for (int a = from; a < to; a++)
+                            for (int b = a + 1; b < to; b++)
+                                pairs.add(AssociationKey.pack((int) buckets[a], (int) buckets[b]));
+                    }
+                    return pairs.toArray();
+                })
+                .flatMapToLong(Arrays::stream)
+                .toArray();
+
+        // the same pair is found in more than one band
+        Arrays.parallelSort(candidates);
+        int size = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            if (i == 0 || candidates[i] != candidates[i - 1])
+                candidates[size++] = candidates[i];
+        }
+        return Arrays.copyOf(candidates, size);
+    }
+
+    // min hash of every target for every seed, one signature after the other
+    private int[] signatures() {
+        int[] targetOffsets = index.getTargetOffsets();
+        int[] targetDiseases = index.getTargetDiseases();
+        int length = seeds.length;
+
+        int[] computed = new int[index.getNumberOfTargets() * length];
+        IntStream.range(0, index.getNumberOfTargets())
+                .parallel()
+                .forEach(target -> {
+                    Arrays.fill(computed, target * length, (target + 1) * length, Integer.MAX_VALUE);
+                    for (int i = targetOffsets[target]; i < targetOffsets[target + 1]; i++) {
+                        int disease = targetDiseases[i];
+                        for (int h = 0; h < length; h++) {
+                            int value = (int) (mix(disease ^ seeds[h]) >>> 33);
+                            if (value < computed[target * length + h])
+                                computed[target * length + h] = value;
+                        }
+                    }
+                });
+
+        return computed;
+    }
+
+    private int sharedCount(int targetA, int targetB) {
+        int[] offsets = index.getTargetOffsets();
+        int[] diseases = index.getTargetDiseases();
+
+        return SortedIntersection.count(diseases, offsets[targetA], offsets[targetA + 1]
+                , diseases, offsets[targetB], offsets[targetB + 1]);
+    }
+
+    private Set<String> sharedDiseases(int targetA, int targetB) {
+        int[] offsets = index.getTargetOffsets();
+        int[] diseases = index.getTargetDiseases();
+
+        int[] shared = new int[Math.min(index.getDegree(targetA), index.getDegree(targetB))];
+        int numberShared = SortedIntersection.intersect(diseases, offsets[targetA], offsets[targetA + 1]
+                , diseases, offsets[targetB], offsets[targetB + 1], shared);
+
+        Set<String> sharedIds = new HashSet<>(numberShared * 2);
+        for (int i = 0; i < numberShared; i++)
+            sharedIds.add(index.getDiseases().get(shared[i]));
+        return sharedIds;
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static class LongArray {
+        private long[] values = new long[16];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package TargetDiseaseScore.search;
+
+import TargetDiseaseScore.data.IdDictionary;
+import TargetDiseaseScore.dto.TDComposite;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Target - disease associations over dense indices in two compressed (CSR) adjacency lists:
+ * the forward one target -> sorted diseases and the inverted one disease -> sorted targets.
+ * Targets are indexed in ascending order of their number of diseases (ties by ID),
+ * so a pair of target indices a < b always has the smaller disease set first.
+ * Every association keeps its median score in an array parallel to each adjacency list.
+ * A {@link #transpose() transposed} index has the roles of targets and diseases swapped.
+ * Immutable once built and safe to share between threads.
+ */
+public class OverlapIndex {
+    private final IdDictionary targets;
+    private final IdDictionary diseases;
+
+    private final int[] targetOffsets;
+    private final int[] targetDiseases;
+    private final double[] targetScores;
+
+    private final int[] diseaseOffsets;
+    private final int[] diseaseTargets;
+    private final double[] diseaseScores;
+
+    private OverlapIndex(IdDictionary targets, IdDictionary diseases, Adjacency forward, Adjacency inverted) {
+        this.targets = targets;
+        this.diseases = diseases;
+        this.targetOffsets = forward.offsets;
+        this.targetDiseases = forward.values;
+        this.targetScores = forward.scores;
+        this.diseaseOffsets = inverted.offsets;
+        this.diseaseTargets = inverted.values;
+        this.diseaseScores = inverted.scores;
+    }
+
+    public static OverlapIndex of(List<TDComposite> associations) {
+
+        // dense indices in order of appearance
+        var seenTargets = new IdDictionary(1024);
+        var seenDiseases = new IdDictionary(1024);
+        int[] pairTarget = new int[associations.size()];
+        int[] pairDisease = new int[associations.size()];
+        double[] pairScore = new double[associations.size()];
+
+        for (int i = 0; i < associations.size(); i++) {
+            var association = associations.get(i);
+            pairTarget[i] = seenTargets.add(association.getTargetId());
+            pairDisease[i] = seenDiseases.add(association.getDiseaseId());
+            pairScore[i] = association.getMedianScore();
+        }
+
+        return of(seenTargets, seenDiseases, pairTarget, pairDisease, pairScore);
+    }
+
+    /**
+     * The same associations with the roles swapped: the diseases of this index become
+     * the targets of the transposed one and the other way round, so the disease -> targets
+     * lists become the forward lists and a search over it finds disease pairs sharing targets.
+     */
+    public OverlapIndex transpose() {
+        int[] pairDisease = new int[diseaseTargets.length];
+        int[] pairTarget = new int[diseaseTargets.length];
+
+        for (int disease = 0; disease < diseases.size(); disease++) {
+            for (int i = diseaseOffsets[disease]; i < diseaseOffsets[disease + 1]; i++) {
+                pairDisease[i] = disease;
+                pairTarget[i] = diseaseTargets[i];
+            }
+        }
+
+        return of(diseases, targets, pairDisease, pairTarget, diseaseScores);
+    }
+
+    private static OverlapIndex of(IdDictionary seenRows, IdDictionary columns
+            , int[] pairRow, int[] pairColumn, double[] pairScore) {
+
+        // sorted, distinct columns per row in order of appearance
+        var seenForward = compress(pairRow, pairColumn, pairScore, seenRows.size());
+        int[] seenOffsets = seenForward.offsets;
+
+        // re-index rows by ascending number of distinct columns, then ID
+        Integer[] order = new Integer[seenRows.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            int degreeA = seenOffsets[a + 1] - seenOffsets[a];
+            int degreeB = seenOffsets[b + 1] - seenOffsets[b];
+            return degreeA != degreeB
+                    ? Integer.compare(degreeA, degreeB)
+                    : seenRows.get(a).compareTo(seenRows.get(b));
+        });
+
+        var rows = new IdDictionary(order.length);
+        int[] offsets = new int[order.length + 1];
+        int[] values = new int[seenForward.values.length];
+        double[] scores = new double[values.length];
+        int[] distinctRow = new int[values.length];
+
+        for (int i = 0; i < order.length; i++) {
+            rows.add(seenRows.get(order[i]));
+
+            int from = seenOffsets[order[i]];
+            int length = seenOffsets[order[i] + 1] - from;
+            System.arraycopy(seenForward.values, from, values, offsets[i], length);
+            System.arraycopy(seenForward.scores, from, scores, offsets[i], length);
+            Arrays.fill(distinctRow, offsets[i], offsets[i] + length, i);
+            offsets[i + 1] = offsets[i] + length;
+        }
+
+        var inverted = compress(values, distinctRow, scores, columns.size());
+
+        return new OverlapIndex(rows, columns, new Adjacency(offsets, values, scores), inverted);
+    }
+
+    // counting sort of (row, column, score) triples into offsets and sorted, de-duplicated columns
+    // with their scores, a duplicate keeps the highest score
+    private static Adjacency compress(int[] rows, int[] columns, double[] scores, int numberOfRows) {
+        int[] offsets = new int[numberOfRows + 1];
+        for (int row : rows)
+            offsets[row + 1]++;
+        for (int row = 0; row < numberOfRows; row++)
+            offsets[row + 1] += offsets[row];
+
+        // (column, triple) packed, so sorting a row keeps every column next to its score
+        int[] cursor = Arrays.copyOf(offsets, numberOfRows);
+        long[] entries = new long[rows.length];
+        for (int i = 0; i < rows.length; i++)
+            entries[cursor[rows[i]]++] = ((long) columns[i] << 32) | i;
+
+        int[] values = new int[rows.length];
+        double[] sortedScores = new double[rows.length];
+
+        // sort each row and squeeze out duplicates
+        int size = 0;
+        for (int row = 0; row < numberOfRows; row++) {
+            int from = offsets[row];
+            int to = offsets[row + 1];
+            Arrays.sort(entries, from, to);
+
+            offsets[row] = size;
+            for (int i = from; i < to; i++) {
+                int column = (int) (entries[i] >>> 32);
+                double score = scores[(int) entries[i]];
+
+                if (i == from || column != values[size - 1]) {
+                    values[size] = column;
+                    sortedScores[size++] = score;
+                } else if (score > sortedScores[size - 1]) {
+                    sortedScores[size - 1] = score;
+                }
+            }
+        }
+        offsets[numberOfRows] = size;
+
+        return size == values.length
+                ? new Adjacency(offsets, values, sortedScores)
+                : new Adjacency(offsets, Arrays.copyOf(values, size), Arrays.copyOf(sortedScores, size));
+    }
+
+    public IdDictionary getTargets() {
+        return targets;
+    }
+
+    public IdDictionary getDiseases() {
+        return diseases;
+    }
+
+    public int getNumberOfTargets() {
+        return targets.size();
+    }
+
+    public int getNumberOfDiseases() {
+        return diseases.size();
+    }
+
+    /**
+     * Number of diseases connected to the target.
+     */
+    public int getDegree(int targetIndex) {
+        return targetOffsets[targetIndex + 1] - targetOffsets[targetIndex];
+    }
+
+    /**
+     * Sorted diseases of every target, a target's slice is
+     * [getTargetOffsets()[t], getTargetOffsets()[t + 1]). Not to be modified.
+     */
+    public int[] getTargetDiseases() {
+        return targetDiseases;
+    }
+
+    /**
+     * Median score of every target - disease association, parallel to getTargetDiseases().
+     * Not to be modified.
+     */
+    public double[] getTargetScores() {
+        return targetScores;
+    }
+
+    public int[] getTargetOffsets() {
+        return targetOffsets;
+    }
+
+    /**
+     * Sorted targets of every disease, a disease's slice is
+     * [getDiseaseOffsets()[d], getDiseaseOffsets()[d + 1]). Not to be modified.
+     */
+    public int[] getDiseaseTargets() {
+        return diseaseTargets;
+    }
+
+    /**
+     * Median score of every disease - target association, parallel to getDiseaseTargets().
+     * Not to be modified.
+     */
+    public double[] getDiseaseScores() {
+        return diseaseScores;
+    }
+
+    public int[] getDiseaseOffsets() {
+        return diseaseOffsets;
+    }
+
+    // one compressed adjacency list with its scores
+    private static class Adjacency {
+        private final int[] offsets;
+        private final int[] values;
+        private final double[] scores;
+
+        private Adjacency(int[] offsets, int[] values, double[] scores) {
+            this.offsets = offsets;
+            this.values = values;
+            this.scores = scores;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package TargetDiseaseScore.search;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Fork/join over a range of targets that splits by estimated cost instead of
+ * by count, so the few expensive, highly connected targets do not end up in
+ * the same chunk and all workers finish together.
+ */
+class PairSearchTask<R> extends RecursiveTask<R> {
+    private static final long serialVersionUID = 1L;
+
+    @FunctionalInterface
+    interface RangeWork<R> {
+        R compute(int from, int to);
+    }
+
+    private final long[] cumulativeCost;
+    private final int offset;
+    private final int from;
+    private final int to;
+    private final long leafCost;
+    private final RangeWork<R> work;
+    private final BinaryOperator<R> combiner;
+
+    /**
+     * @param cumulativeCost cost of the targets [offset, offset + i) at position i
+     * @param leafCost cost up to which a range is not split any further
+     */
+    PairSearchTask(long[] cumulativeCost, int offset, int from, int to, long leafCost
+            , RangeWork<R> work, BinaryOperator<R> combiner) {
+        this.cumulativeCost = cumulativeCost;
+        this.offset = offset;
+        this.from = from;
+        this.to = to;
+        this.leafCost = leafCost;
+        this.work = work;
+        this.combiner = combiner;
+    }
+
+    @Override
+    protected R compute() {
+        long startCost = cumulativeCost[from - offset];
+        long cost = cumulativeCost[to - offset] - startCost;
+
+        if (cost <= leafCost || to - from < 2)
+            return work.compute(from, to);
+
+        // split where half of the cost of the range is reached
+        long halfCost = startCost + cost / 2;
+        int low = from + 1;
+        int high = to - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeCost[middle - offset] < halfCost)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        var left = new PairSearchTask<>(cumulativeCost, offset, from, low, leafCost, work, combiner);
+        var right = new PairSearchTask<>(cumulativeCost, offset, low, to, leafCost, work, combiner);
+
+        left.fork();
+        R rightResult = right.compute();
+        return combiner.apply(left.join(), rightResult);
+    }
+}
@@ -0,0 +1,36 @@
+package TargetDiseaseScore.search;
+
+/**
+ * Similarity of two targets from their number of shared diseases and their numbers of diseases.
+ */
+public enum PairSimilarity {
+    OVERLAP {
+        @Override
+        public double score(int shared, int degreeA, int degreeB) {
+            return shared;
+        }
+
+        @Override
+        public double upperBound(int degreeA, int degreeB) {
+            return Math.min(degreeA, degreeB);
+        }
+    },
+    JACCARD {
+        @Override
+        public double score(int shared, int degreeA, int degreeB) {
+            return (double) shared / (degreeA + degreeB - shared);
+        }
+
+        @Override
+        public double upperBound(int degreeA, int degreeB) {
+            return (double) Math.min(degreeA, degreeB) / Math.max(degreeA, degreeB);
+        }
+    };
+
+    public abstract double score(int shared, int degreeA, int degreeB);
+
+    /**
+     * Best score two targets with these numbers of diseases can have.
+     */
+    public abstract double upperBound(int degreeA, int degreeB);
+}
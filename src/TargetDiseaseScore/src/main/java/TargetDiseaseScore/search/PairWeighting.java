@@ -0,0 +1,87 @@
+package TargetDiseaseScore.search;
+
+/**
+ * Similarity of a target pair found by the search, weighted by the median scores
+ * of the associations. The scores are read from the index arrays parallel to the
+ * disease lists, so no association has to be looked up by its IDs.
+ */
+public enum PairWeighting {
+    /**
+     * Unweighted, the number of shared diseases.
+     */
+    SHARED {
+        @Override
+        public double score(OverlapIndex index, int targetA, int targetB, int shared) {
+            return shared;
+        }
+    },
+    /**
+     * Sum over the shared diseases of the lower of the two median scores.
+     */
+    MIN_SUM {
+        @Override
+        public double score(OverlapIndex index, int targetA, int targetB, int shared) {
+            int[] offsets = index.getTargetOffsets();
+            int[] diseases = index.getTargetDiseases();
+            double[] scores = index.getTargetScores();
+
+            double sum = 0;
+            int i = offsets[targetA];
+            int j = offsets[targetB];
+            int toA = offsets[targetA + 1];
+            int toB = offsets[targetB + 1];
+            while (i < toA && j < toB) {
+                if (diseases[i] < diseases[j]) {
+                    i++;
+                } else if (diseases[i] > diseases[j]) {
+                    j++;
+                } else {
+                    sum += Math.min(scores[i++], scores[j++]);
+                }
+            }
+            return sum;
+        }
+    },
+    /**
+     * Cosine of the two median score vectors over all diseases.
+     */
+    COSINE {
+        @Override
+        public double score(OverlapIndex index, int targetA, int targetB, int shared) {
+            int[] offsets = index.getTargetOffsets();
+            int[] diseases = index.getTargetDiseases();
+            double[] scores = index.getTargetScores();
+
+            double dot = 0;
+            double normA = 0;
+            double normB = 0;
+            int i = offsets[targetA];
+            int j = offsets[targetB];
+            int toA = offsets[targetA + 1];
+            int toB = offsets[targetB + 1];
+
+            // walk both lists to the end, the norms need every score
+            while (i < toA || j < toB) {
+                if (j == toB || (i < toA && diseases[i] < diseases[j])) {
+                    normA += scores[i] * scores[i];
+                    i++;
+                } else if (i == toA || diseases[i] > diseases[j]) {
+                    normB += scores[j] * scores[j];
+                    j++;
+                } else {
+                    dot += scores[i] * scores[j];
+                    normA += scores[i] * scores[i];
+                    normB += scores[j] * scores[j];
+                    i++;
+                    j++;
+                }
+            }
+            return dot == 0 ? 0 : dot / Math.sqrt(normA * normB);
+        }
+    };
+
+    /**
+     * @param shared number of diseases the two targets share
+     */
+    public abstract double score(OverlapIndex index, int targetA, int targetB, int shared);
+}
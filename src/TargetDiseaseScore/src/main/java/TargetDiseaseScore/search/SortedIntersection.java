@@ -0,0 +1,95 @@
+package TargetDiseaseScore.search;
+
+/**
+ * Intersection of sorted, distinct int slices such as the disease lists of two targets.
+ * Lists of similar length are merged without data dependent branches, so the loop does not
+ * stall on mispredictions; a much shorter list is galloped through the longer one instead.
+ */
+public final class SortedIntersection {
+    private SortedIntersection() {}
+
+    // longer list this many times the shorter one is galloped
+    private static final int GALLOP_RATIO = 32;
+
+    public static int count(int[] a, int fromA, int toA, int[] b, int fromB, int toB) {
+        if (toA - fromA > toB - fromB)
+            return count(b, fromB, toB, a, fromA, toA);
+
+        if ((long) (toA - fromA) * GALLOP_RATIO < toB - fromB)
+            return gallop(a, fromA, toA, b, fromB, toB, null);
+
+        int count = 0;
+        int i = fromA;
+        int j = fromB;
+        while (i < toA && j < toB) {
+            int x = a[i];
+            int y = b[j];
+            count += x == y ? 1 : 0;
+            i += x <= y ? 1 : 0;
+            j += y <= x ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Writes the shared values in ascending order into out, which has to fit
+     * the shorter slice, and returns their number.
+     */
+    public static int intersect(int[] a, int fromA, int toA, int[] b, int fromB, int toB, int[] out) {
+        if (toA - fromA > toB - fromB)
+            return intersect(b, fromB, toB, a, fromA, toA, out);
+
+        if ((long) (toA - fromA) * GALLOP_RATIO < toB - fromB)
+            return gallop(a, fromA, toA, b, fromB, toB, out);
+
+        int count = 0;
+        int i = fromA;
+        int j = fromB;
+        while (i < toA && j < toB) {
+            int x = a[i];
+            int y = b[j];
+            // the slot is overwritten until a match moves past it
+            out[count] = x;
+            count += x == y ? 1 : 0;
+            i += x <= y ? 1 : 0;
+            j += y <= x ? 1 : 0;
+        }
+        return count;
+    }
+
+    // every value of the short slice is looked up in the long one by exponential then binary search
+    private static int gallop(int[] small, int fromSmall, int toSmall, int[] large, int fromLarge, int toLarge
+            , int[] out) {
+        int count = 0;
+        int low = fromLarge;
+
+        for (int i = fromSmall; i < toSmall && low < toLarge; i++) {
+            int value = small[i];
+
+            int step = 1;
+            int high = low;
+            while (high < toLarge && large[high] < value) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            high = Math.min(high, toLarge - 1);
+
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (large[middle] < value)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+
+            if (low < toLarge && large[low] == value) {
+                if (out != null)
+                    out[count] = value;
+                count++;
+                low++;
+            }
+        }
+        return count;
+    }
+}
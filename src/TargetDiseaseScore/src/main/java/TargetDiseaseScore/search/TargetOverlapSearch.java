@@ -0,0 +1,460 @@
+package TargetDiseaseScore.search;
+
+import TargetDiseaseScore.data.AssociationKey;
+import TargetDiseaseScore.dto.TargetDiseaseSet;
+import TargetDiseaseScore.dto.TargetOverlapPair;
+import TargetDiseaseScore.io.TargetPairConsumer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Finds target pairs sharing at least a min number of diseases.
+ * For every target the inverted index disease -> targets is walked to count co-occurrences
+ * with later targets only, so pairs that share nothing are never visited.
+ * The last, most connected targets are compared pairwise on disease bitmaps instead,
+ * once that is cheaper than walking their long disease -> targets lists.
+ * Targets are scheduled on fork/join tasks split by estimated cost.
+ * Over a transposed index the same search finds disease pairs sharing targets.
+ */
+public class TargetOverlapSearch {
+    private final OverlapIndex index;
+
+    public TargetOverlapSearch(OverlapIndex index) {
+        this.index = index;
+    }
+
+    public List<TargetOverlapPair> findPairs(int minOfSharedDiseases) {
+        return findPairs(minOfSharedDiseases, PairWeighting.SHARED);
+    }
+
+    /**
+     * Pairs with their similarity weighted by the median scores of the shared diseases.
+     */
+    public List<TargetOverlapPair> findPairs(int minOfSharedDiseases, PairWeighting weighting) {
+        // a shared connection needs at least one shared disease
+        var plan = new Plan(Math.max(minOfSharedDiseases, 1));
+
+        // per thread co-occurrence counters, reset after each target
+        ThreadLocal<Counters> counters = ThreadLocal.withInitial(() -> new Counters(index.getNumberOfTargets()));
+
+        return plan.run((from, to) -> {
+            var pairs = new ArrayList<TargetOverlapPair>();
+            TargetPairConsumer collector = (targetIdA, targetIdB, diseasesShared, similarity) ->
+                    pairs.add(new TargetOverlapPair(targetIdA, targetIdB, Set.of(diseasesShared), similarity));
+
+            for (int targetA = from; targetA < to; targetA++) {
+                if (targetA < plan.firstDense)
+                    pairsOf(targetA, plan.minShared, weighting, counters.get(), collector);
+                else
+                    densePairsOf(targetA - plan.firstDense, plan, weighting, collector);
+            }
+            return pairs;
+        }, (left, right) -> {
+            left.addAll(right);
+            return left;
+        });
+    }
+
+    /**
+     * Streams the pairs to consumers as they are found, no pairs are kept in memory.
+     * Every worker thread takes its own consumer from the supplier.
+     *
+     * @return number of pairs
+     */
+    public long forEachPair(int minOfSharedDiseases, PairWeighting weighting
+            , Supplier<TargetPairConsumer> consumers) {
+        var plan = new Plan(Math.max(minOfSharedDiseases, 1));
+
+        ThreadLocal<Counters> counters = ThreadLocal.withInitial(() -> new Counters(index.getNumberOfTargets()));
+        ThreadLocal<TargetPairConsumer> workerConsumers = ThreadLocal.withInitial(consumers);
+
+        return plan.run((from, to) -> {
+            long numberOfPairs = 0;
+            for (int targetA = from; targetA < to; targetA++) {
+                numberOfPairs += targetA < plan.firstDense
+                        ? pairsOf(targetA, plan.minShared, weighting, counters.get(), workerConsumers.get())
+                        : densePairsOf(targetA - plan.firstDense, plan, weighting, workerConsumers.get());
+            }
+            return numberOfPairs;
+        }, Long::sum);
+    }
+
+    /**
+     * Number of target pairs by number of shared diseases: element k counts the pairs that
+     * share exactly k diseases, for k from min shared up. No pairs are materialized,
+     * and one pass answers the pair count for every threshold from min shared up.
+     */
+    public long[] histogram(int minOfSharedDiseases) {
+        var plan = new Plan(Math.max(minOfSharedDiseases, 1));
+
+        // pairs share at most as many diseases as the most connected target has
+        int numberOfTargets = index.getNumberOfTargets();
+        int maxShared = numberOfTargets == 0 ? 0 : index.getDegree(numberOfTargets - 1);
+
+        ThreadLocal<Counters> counters = ThreadLocal.withInitial(() -> new Counters(numberOfTargets));
+
+        return plan.run((from, to) -> {
+            long[] histogram = new long[maxShared + 1];
+            for (int targetA = from; targetA < to; targetA++) {
+                if (targetA < plan.firstDense)
+                    countPairsOf(targetA, plan.minShared, counters.get(), histogram);
+                else
+                    countDensePairsOf(targetA - plan.firstDense, plan.minShared, plan.denseSets, histogram);
+            }
+            return histogram;
+        }, (histogram, other) -> {
+            for (int k = 0; k < histogram.length; k++)
+                histogram[k] += other[k];
+            return histogram;
+        });
+    }
+
+    /**
+     * The k pairs with the highest similarity, best first. Workers keep bounded heaps and share
+     * the best k-th score found so far; a target, or a candidate of it, is skipped when its numbers
+     * of diseases alone cannot beat that score. Only the k winners are materialized.
+     */
+    public List<TargetOverlapPair> topPairs(int k, PairSimilarity similarity) {
+        if (k < 1)
+            return new ArrayList<>();
+
+        var plan = new Plan(1);
+        var sharedBound = new AtomicLong(Double.doubleToLongBits(0.0));
+
+        ThreadLocal<Counters> counters = ThreadLocal.withInitial(() -> new Counters(index.getNumberOfTargets()));
+
+        TopPairs top = plan.run((from, to) -> {
+            var leafTop = new TopPairs(k, sharedBound);
+            for (int targetA = from; targetA < to; targetA++) {
+                if (targetA < plan.firstDense)
+                    topPairsOf(targetA, similarity, counters.get(), leafTop, sharedBound);
+                else
+                    topDensePairsOf(targetA - plan.firstDense, plan.firstDense, similarity
+                            , plan.denseSets, leafTop, sharedBound);
+            }
+            return leafTop;
+        }, TopPairs::merge);
+
+        top.sort();
+
+        var pairs = new ArrayList<TargetOverlapPair>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            int targetA = AssociationKey.first(top.pair(i));
+            int targetB = AssociationKey.second(top.pair(i));
+            String[] shared = sharedDiseases(targetA, targetB, sharedCount(targetA, targetB));
+
+            pairs.add(new TargetOverlapPair(index.getTargets().get(targetA), index.getTargets().get(targetB)
+                    , Set.of(shared), top.score(i)));
+        }
+        return pairs;
+    }
+
+    public long countPairs(int minOfSharedDiseases) {
+        return countAtLeast(histogram(minOfSharedDiseases), minOfSharedDiseases);
+    }
+
+    /**
+     * Number of pairs sharing at least min shared diseases from a histogram.
+     */
+    public static long countAtLeast(long[] histogram, int minOfSharedDiseases) {
+        long count = 0;
+        for (int k = Math.max(minOfSharedDiseases, 1); k < histogram.length; k++)
+            count += histogram[k];
+        return count;
+    }
+
+    // targets are ordered by degree: the ones with fewer diseases than min shared come first
+    private int firstCandidate(int minShared) {
+        int first = 0;
+        while (first < index.getNumberOfTargets() && index.getDegree(first) < minShared)
+            first++;
+        return first;
+    }
+
+    // number of disease -> targets entries walked for each target: for every disease
+    // of the target, the targets listed after it
+    private long[] invertedCosts() {
+        int[] diseaseOffsets = index.getDiseaseOffsets();
+        int[] diseaseTargets = index.getDiseaseTargets();
+
+        long[] costs = new long[index.getNumberOfTargets()];
+        for (int disease = 0; disease < index.getNumberOfDiseases(); disease++) {
+            int to = diseaseOffsets[disease + 1];
+            for (int j = diseaseOffsets[disease]; j < to; j++)
+                costs[diseaseTargets[j]] += to - j - 1;
+        }
+        return costs;
+    }
+
+    // first target from which comparing bitmaps with all later targets
+    // costs no more than walking the disease -> targets lists
+    private int firstDense(long[] invertedCosts) {
+        long words = (index.getNumberOfDiseases() + 63) >>> 6;
+
+        int first = index.getNumberOfTargets();
+        while (first > 0) {
+            long pairwiseCost = (index.getNumberOfTargets() - first) * words;
+            if (pairwiseCost > invertedCosts[first - 1])
+                break;
+            first--;
+        }
+        return first;
+    }
+
+    private TargetDiseaseSet[] diseaseSets(int firstDense) {
+        int[] targetOffsets = index.getTargetOffsets();
+
+        return IntStream.range(firstDense, index.getNumberOfTargets())
+                .parallel()
+                .mapToObj(target -> new TargetDiseaseSet(index.getTargets().get(target)
+                        , index.getTargetDiseases(), targetOffsets[target], targetOffsets[target + 1]
+                        , index.getNumberOfDiseases()))
+                .toArray(TargetDiseaseSet[]::new);
+    }
+
+    private int densePairsOf(int setA, Plan plan, PairWeighting weighting, TargetPairConsumer out) {
+        TargetDiseaseSet[] denseSets = plan.denseSets;
+        int numberOfPairs = 0;
+
+        for (int setB = setA + 1; setB < denseSets.length; setB++) {
+            if (denseSets[setA].sharesAtLeast(denseSets[setB], plan.minShared)) {
+                int[] shared = denseSets[setA].shared(denseSets[setB]);
+                out.accept(denseSets[setA].getTargetId()
+                        , denseSets[setB].getTargetId()
+                        , diseaseIds(shared)
+                        , weighting.score(index, plan.firstDense + setA, plan.firstDense + setB, shared.length));
+                numberOfPairs++;
+            }
+        }
+
+        return numberOfPairs;
+    }
+
+    private String[] diseaseIds(int[] diseaseIndices) {
+        String[] diseases = new String[diseaseIndices.length];
+        for (int i = 0; i < diseaseIndices.length; i++)
+            diseases[i] = index.getDiseases().get(diseaseIndices[i]);
+        return diseases;
+    }
+
+    private void countDensePairsOf(int setA, int minShared, TargetDiseaseSet[] denseSets, long[] histogram) {
+        for (int setB = setA + 1; setB < denseSets.length; setB++) {
+            int shared = denseSets[setA].countShared(denseSets[setB], minShared);
+            if (shared >= minShared)
+                histogram[shared]++;
+        }
+    }
+
+    private void topPairsOf(int targetA, PairSimilarity similarity, Counters counters
+            , TopPairs top, AtomicLong sharedBound) {
+        int degreeA = index.getDegree(targetA);
+
+        // later targets have at least as many diseases, the best case is a target of the same size
+        if (similarity.upperBound(degreeA, degreeA) < TopPairs.bound(sharedBound))
+            return;
+
+        // later targets only get bigger and, for Jaccard, worse; count only up to the last one that can still win
+        int to = index.getNumberOfTargets();
+        while (to - 1 > targetA
+                && similarity.upperBound(degreeA, index.getDegree(to - 1)) < TopPairs.bound(sharedBound))
+            to = firstWithDegree(index.getDegree(to - 1), targetA + 1, to);
+
+        int[] counts = counters.counts;
+        int[] touched = counters.touched;
+
+        for (int k = countCoOccurrences(targetA, to, counters) - 1; k >= 0; k--) {
+            int targetB = touched[k];
+            top.offer(similarity.score(counts[targetB], degreeA, index.getDegree(targetB)), targetA, targetB);
+            counts[targetB] = 0;
+        }
+    }
+
+    // first target in the range with at least the given degree
+    private int firstWithDegree(int degree, int from, int to) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (index.getDegree(middle) < degree)
+                from = middle + 1;
+            else
+                to = middle;
+        }
+        return from;
+    }
+
+    private void topDensePairsOf(int setA, int firstDense, PairSimilarity similarity
+            , TargetDiseaseSet[] denseSets, TopPairs top, AtomicLong sharedBound) {
+        int degreeA = denseSets[setA].getNumberOfDiseases();
+
+        for (int setB = setA + 1; setB < denseSets.length; setB++) {
+            int degreeB = denseSets[setB].getNumberOfDiseases();
+
+            // later sets are only bigger
+            if (similarity.upperBound(degreeA, degreeB) < TopPairs.bound(sharedBound))
+                return;
+
+            int shared = denseSets[setA].countShared(denseSets[setB], 1);
+            if (shared > 0)
+                top.offer(similarity.score(shared, degreeA, degreeB), firstDense + setA, firstDense + setB);
+        }
+    }
+
+    private void countPairsOf(int targetA, int minShared, Counters counters, long[] histogram) {
+        int[] counts = counters.counts;
+        int[] touched = counters.touched;
+
+        // tally shared counts over the threshold and reset the counters
+        for (int k = countCoOccurrences(targetA, counters) - 1; k >= 0; k--) {
+            int targetB = touched[k];
+            if (counts[targetB] >= minShared)
+                histogram[counts[targetB]]++;
+            counts[targetB] = 0;
+        }
+    }
+
+    private int pairsOf(int targetA, int minShared, PairWeighting weighting, Counters counters
+            , TargetPairConsumer out) {
+        int[] counts = counters.counts;
+        int[] touched = counters.touched;
+        int numberTouched = countCoOccurrences(targetA, counters);
+        int numberOfPairs = 0;
+
+        // emit pairs over the threshold and reset the counters
+        Arrays.sort(touched, 0, numberTouched);
+
+        for (int k = 0; k < numberTouched; k++) {
+            int targetB = touched[k];
+            if (counts[targetB] >= minShared) {
+                out.accept(index.getTargets().get(targetA)
+                        , index.getTargets().get(targetB)
+                        , sharedDiseases(targetA, targetB, counts[targetB])
+                        , weighting.score(index, targetA, targetB, counts[targetB]));
+                numberOfPairs++;
+            }
+            counts[targetB] = 0;
+        }
+
+        return numberOfPairs;
+    }
+
+    // counts diseases shared with every later target,
+    // returns the number of targets touched, listed at the front of the touched array
+    private int countCoOccurrences(int targetA, Counters counters) {
+        return countCoOccurrences(targetA, index.getNumberOfTargets(), counters);
+    }
+
+    // only targets before the given end are counted
+    private int countCoOccurrences(int targetA, int targetEnd, Counters counters) {
+        int[] targetOffsets = index.getTargetOffsets();
+        int[] targetDiseases = index.getTargetDiseases();
+        int[] diseaseOffsets = index.getDiseaseOffsets();
+        int[] diseaseTargets = index.getDiseaseTargets();
+
+        int[] counts = counters.counts;
+        int[] touched = counters.touched;
+        int numberTouched = 0;
+
+        for (int i = targetOffsets[targetA]; i < targetOffsets[targetA + 1]; i++) {
+            int disease = targetDiseases[i];
+            int to = diseaseOffsets[disease + 1];
+
+            for (int j = firstAfter(diseaseTargets, diseaseOffsets[disease], to, targetA); j < to; j++) {
+                int targetB = diseaseTargets[j];
+                if (targetB >= targetEnd)
+                    break;
+                if (counts[targetB]++ == 0)
+                    touched[numberTouched++] = targetB;
+            }
+        }
+
+        return numberTouched;
+    }
+
+    // first position in a sorted slice with a value greater than the given one
+    private static int firstAfter(int[] values, int from, int to, int value) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (values[middle] <= value)
+                from = middle + 1;
+            else
+                to = middle;
+        }
+        return from;
+    }
+
+    private int sharedCount(int targetA, int targetB) {
+        int[] offsets = index.getTargetOffsets();
+        int[] diseases = index.getTargetDiseases();
+
+        return SortedIntersection.count(diseases, offsets[targetA], offsets[targetA + 1]
+                , diseases, offsets[targetB], offsets[targetB + 1]);
+    }
+
+    private String[] sharedDiseases(int targetA, int targetB, int numberShared) {
+        int[] offsets = index.getTargetOffsets();
+        int[] diseases = index.getTargetDiseases();
+
+        // the kernel needs room for the shorter list
+        int[] shared = new int[Math.min(index.getDegree(targetA), index.getDegree(targetB))];
+        SortedIntersection.intersect(diseases, offsets[targetA], offsets[targetA + 1]
+                , diseases, offsets[targetB], offsets[targetB + 1], shared);
+
+        return diseaseIds(Arrays.copyOf(shared, numberShared));
+    }
+
+    // candidate targets, dense sets and per target cost of one search
+    private class Plan {
+        private final int minShared;
+        private final int firstCandidate;
+        private final int firstDense;
+        private final TargetDiseaseSet[] denseSets;
+        private final long[] cumulativeCost;
+
+        private Plan(int minShared) {
+            this.minShared = minShared;
+            int numberOfTargets = index.getNumberOfTargets();
+
+            long[] invertedCosts = invertedCosts();
+            firstCandidate = firstCandidate(minShared);
+            firstDense = Math.max(firstDense(invertedCosts), firstCandidate);
+            denseSets = diseaseSets(firstDense);
+
+            // a dense target is compared with every later target, one bitmap word at a time
+            long words = (index.getNumberOfDiseases() + 63) >>> 6;
+            cumulativeCost = new long[numberOfTargets - firstCandidate + 1];
+            for (int target = firstCandidate; target < numberOfTargets; target++) {
+                long cost = target < firstDense
+                        ? invertedCosts[target]
+                        : (numberOfTargets - target - 1) * words;
+                cumulativeCost[target - firstCandidate + 1] = cumulativeCost[target - firstCandidate] + cost + 1;
+            }
+        }
+
+        private <R> R run(PairSearchTask.RangeWork<R> work, BinaryOperator<R> combiner) {
+            // a few chunks per worker to even out the cost estimates
+            long leafCost = Math.max(1
+                    , cumulativeCost[cumulativeCost.length - 1] / (ForkJoinPool.getCommonPoolParallelism() * 8L));
+
+            return ForkJoinPool.commonPool().invoke(new PairSearchTask<>
+                    (cumulativeCost, firstCandidate, firstCandidate, index.getNumberOfTargets()
+                            , leafCost, work, combiner));
+        }
+    }
+
+    private static class Counters {
+        private final int[] counts;
+        private final int[] touched;
+
+        private Counters(int numberOfTargets) {
+            counts = new int[numberOfTargets];
+            touched = new int[numberOfTargets];
+        }
+    }
+}
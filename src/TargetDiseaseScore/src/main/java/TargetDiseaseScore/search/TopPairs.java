@@ -0,0 +1,131 @@
+package TargetDiseaseScore.search;
+
+import TargetDiseaseScore.data.AssociationKey;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded min-heap of the k best scoring pairs seen by one worker. Ties are broken
+ * by the packed pair key, so the result does not depend on scheduling.
+ * Once full, its k-th score is published to a bound shared by all workers:
+ * no pair scoring below it can make the overall top k.
+ */
+class TopPairs {
+    private final int capacity;
+    private final double[] scores;
+    private final long[] pairs;
+    private final AtomicLong sharedBound;
+    private int size;
+
+    TopPairs(int capacity, AtomicLong sharedBound) {
+        this.capacity = capacity;
+        this.scores = new double[capacity];
+        this.pairs = new long[capacity];
+        this.sharedBound = sharedBound;
+    }
+
+    /**
+     * Lowest score that can still make the top k, scores are non-negative.
+     */
+    static double bound(AtomicLong sharedBound) {
+        return Double.longBitsToDouble(sharedBound.get());
+    }
+
+    int size() {
+        return size;
+    }
+
+    void offer(double score, int targetA, int targetB) {
+        long pair = AssociationKey.pack(targetA, targetB);
+
+        if (size < capacity) {
+            scores[size] = score;
+            pairs[size] = pair;
+            siftUp(size++);
+        } else if (worse(scores[0], pairs[0], score, pair)) {
+            scores[0] = score;
+            pairs[0] = pair;
+            siftDown(0);
+        } else {
+            return;
+        }
+
+        if (size == capacity)
+            publish(scores[0]);
+    }
+
+    TopPairs merge(TopPairs other) {
+        for (int i = 0; i < other.size; i++)
+            offer(other.scores[i], AssociationKey.first(other.pairs[i]), AssociationKey.second(other.pairs[i]));
+        return this;
+    }
+
+    /**
+     * Orders the pairs from best to worst, no more pairs can be offered after that.
+     */
+    void sort() {
+        // repeatedly move the worst pair behind the shrinking heap
+        int heapSize = size;
+        while (size > 1) {
+            swap(0, --size);
+            siftDown(0);
+        }
+        size = heapSize;
+    }
+
+    long pair(int i) {
+        return pairs[i];
+    }
+
+    double score(int i) {
+        return scores[i];
+    }
+
+    private void publish(double kthScore) {
+        long bits = Double.doubleToLongBits(kthScore);
+        long current;
+        while (bits > (current = sharedBound.get())) {
+            if (sharedBound.compareAndSet(current, bits))
+                return;
+        }
+    }
+
+    // lower score, or the same score and the larger pair key
+    private static boolean worse(double scoreA, long pairA, double scoreB, long pairB) {
+        return scoreA < scoreB || scoreA == scoreB && pairA > pairB;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(scores[i], pairs[i], scores[parent], pairs[parent]))
+                return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size)
+                return;
+            if (child + 1 < size && worse(scores[child + 1], pairs[child + 1], scores[child], pairs[child]))
+                child++;
+            if (!worse(scores[child], pairs[child], scores[i], pairs[i]))
+                return;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+        long pair = pairs[i];
+        pairs[i] = pairs[j];
+        pairs[j] = pair;
+    }
+}
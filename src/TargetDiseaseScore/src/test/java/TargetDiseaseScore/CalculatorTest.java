@@ -6,6 +6,9 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,9 +28,48 @@ public class CalculatorTest {
                 Arguments.of(new double[] {1, 3, 3, 6, 7, 8, 9}, 6)
                 , Arguments.of(new double[] {1, 2, 3, 4, 5, 6, 8, 9}, 4.5)
                 , Arguments.of(new double[]{2}, 2)
+                , Arguments.of(new double[]{0.2, 0.1}, 0.15)
+                , Arguments.of(new double[]{5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 1}, 5)
         );
     }
 
+    @ParameterizedTest
+    @MethodSource("randomInputs")
+    @DisplayName("Median and top scores selection matches full sort.")
+    public void testMedianAndTopScores(double[] input, int topCount) {
+        double[] sorted = input.clone();
+        Arrays.sort(sorted);
+
+        int n = sorted.length;
+        double expectedMedian = n % 2 == 0
+                ? BigDecimal.valueOf(sorted[n / 2]).add(BigDecimal.valueOf(sorted[n / 2 - 1]))
+                        .divide(BigDecimal.valueOf(2.0)).doubleValue()
+                : sorted[n / 2];
+
+        double[] expectedTop = new double[topCount];
+        for (int i = 0; i < topCount; i++) {
+            expectedTop[i] = sorted[n - 1 - i];
+        }
+
+        // extra tail beyond the length must be ignored
+        double[] values = Arrays.copyOf(input, n + 5);
+        Arrays.fill(values, n, n + 5, Double.MAX_VALUE);
+
+        double[] top = new double[topCount];
+        assertAll("Test selection results"
+                , () -> assertEquals(expectedMedian, Calculator.medianAndTopScores(values, n, top), 0)
+                , () -> assertArrayEquals(expectedTop, top, 0));
+    }
+
+    public static Stream<Arguments> randomInputs() {
+        var random = new Random(7);
+        return Stream.of(1, 2, 3, 17, 100, 1001, 20_000)
+                .flatMap(n -> Stream.of(Math.min(n, 3), n)
+                        .map(top -> Arguments.of(random.doubles(n)
+                                // coarse values to get plenty of duplicates
+                                .map(v -> Math.round(v * 20) / 20.0).toArray(), top)));
+    }
+
 
     @Test
     @DisplayName("Median calculation bad input test.")
@@ -36,7 +78,9 @@ public class CalculatorTest {
                 , () -> assertThrows(IllegalArgumentException.class, () -> Calculator.median(null)
                         , () -> "null value should throw IllegalArgumentException")
                 , () -> assertThrows(IllegalArgumentException.class, () -> Calculator.median(new double[]{})
-                        , () -> "empty array should throw IllegalArgumentException"));
+                        , () -> "empty array should throw IllegalArgumentException")
+                , () -> assertThrows(IllegalArgumentException.class, () -> Calculator.median(new double[]{1}, 2)
+                        , () -> "length beyond the array should throw IllegalArgumentException"));
 
     }
 }
@@ -1,6 +1,7 @@
 package TargetDiseaseScore;
 
 import TargetDiseaseScore.dto.*;
+import TargetDiseaseScore.io.BinaryCache;
 import TargetDiseaseScore.io.JsonIO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,13 +12,21 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
-import static org.junit.jupiter.api.Assertions.assertAll;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class TargetDiseaseScoreMainIntegrationTest {
 
@@ -150,6 +159,207 @@ public class TargetDiseaseScoreMainIntegrationTest {
             }
         }
 
+        @Nested
+        @DisplayName("When we run the main method with the disease-disease search")
+        public class testMainWithDiseasePairs {
+            @Test
+            @DisplayName("Then the method reports disease pairs sharing targets")
+            public void givenDataFiles_runMainWithDiseasePairs() throws IOException {
+
+                // redirect standard output stream
+                final PrintStream standardOut = System.out;
+                final ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
+                System.setOut(new PrintStream(outputStreamCaptor));
+
+                Path outputDir = Files.createDirectories(dataDir.resolve("disease_pairs"));
+                TargetDiseaseScoreMain.main("-e", evidenceFile.getParent().toString()
+                        , "-t", targetFile.getParent().toString()
+                        , "-d", diseaseFile.getParent().toString()
+                        , "-o", outputDir.toString()
+                        , "-sn", "2", "-dsn", "2");
+
+                // restore standard output
+                System.setOut(standardOut);
+
+                // expected pair:
+                // DiseaseA:[1] DiseaseB:[2] Shared targets:[1, 2]
+                assertAll("Test that the output has the disease-disease pairs"
+                        , () -> assertTrue
+                                (outputStreamCaptor.toString().contains("Min number of shared targets: [2]")
+                                        , () -> "The output should report the min number of shared targets")
+                        , () -> assertTrue
+                                (outputStreamCaptor.toString().contains("at least 2 shared targets: 1")
+                                        , () -> "The output should have 'at least 2 shared targets: 1'")
+                );
+            }
+        }
+
+        @Nested
+        @DisplayName("When we run the main method with the shared diseases histogram")
+        public class testMainWithHistogram {
+            @Test
+            @DisplayName("Then the method writes pair counts for every number of shared diseases")
+            public void givenDataFiles_runMainWithHistogram() throws IOException {
+
+                TargetDiseaseScoreMain.main("-e", evidenceFile.getParent().toString()
+                        , "-t", targetFile.getParent().toString()
+                        , "-d", diseaseFile.getParent().toString()
+                        , "-o", dataDir.toString()
+                        , "-sn", "1", "-hg", "-tk", "5", "-sm", "jaccard");
+
+                var histogram = Files.readAllLines(dataDir.resolve("shared_diseases_histogram.json"));
+                var topPairs = Files.readAllLines(dataDir.resolve("top_target_pairs.json"));
+
+                // targets 1 and 2 share two diseases, no other pairs
+                assertAll("Test histogram rows"
+                        , () -> assertEquals(2, histogram.size())
+                        , () -> assertEquals("{\"sharedDiseases\":1,\"targetPairs\":0,\"targetPairsAtLeast\":1}"
+                                , histogram.get(0))
+                        , () -> assertEquals("{\"sharedDiseases\":2,\"targetPairs\":1,\"targetPairsAtLeast\":1}"
+                                , histogram.get(1))
+                        // the only pair sharing a disease is also the most similar one
+                        , () -> assertEquals(1, topPairs.size())
+                        , () -> assertTrue(topPairs.get(0).contains("\"targetIdA\":\"1\",\"targetIdB\":\"2\"")
+                                , topPairs.get(0)));
+            }
+        }
+
+        @Nested
+        @DisplayName("When we run the main method writing target pairs")
+        public class testMainWithPairs {
+            @Test
+            @DisplayName("Then the method streams the pairs into segment files")
+            public void givenDataFiles_runMainWithPairs() throws IOException {
+
+                TargetDiseaseScoreMain.main("-e", evidenceFile.getParent().toString()
+                        , "-t", targetFile.getParent().toString()
+                        , "-d", diseaseFile.getParent().toString()
+                        , "-o", dataDir.toString()
+                        , "-sn", "2", "-wp", "-wt", "min_sum");
+
+                var pairs = new ArrayList<String>();
+                try (var files = Files.list(dataDir.resolve("target_pairs"))) {
+                    for (Path file : (Iterable<Path>) files::iterator)
+                        pairs.addAll(Files.readAllLines(file));
+                }
+
+                // expected pair:
+                // TargetA:[1] TargetB:[2] Shared diseases:[1, 2]
+                assertAll("Test written pairs"
+                        , () -> assertEquals(1, pairs.size())
+                        , () -> assertTrue(pairs.get(0).startsWith("{\"targetIdA\":\"1\",\"targetIdB\":\"2\""))
+                        , () -> assertEquals(Set.of("1", "2"), Set.copyOf((List<?>) new JsonIO()
+                                .stringToObj(pairs.get(0), Map.class).get("diseasesShared")))
+                        , () -> assertTrue(((Number) new JsonIO().stringToObj(pairs.get(0), Map.class)
+                                .get("similarity")).doubleValue() > 0));
+            }
+        }
+
+        @Nested
+        @DisplayName("When we run the main method with a partitioned joint data set")
+        public class testMainWithPartitions {
+            @Test
+            @DisplayName("Then the method writes compressed part files by targetId")
+            public void givenDataFiles_runMainWithPartitions() throws IOException {
+
+                Path outputDir = Files.createDirectories(dataDir.resolve("partitioned"));
+                TargetDiseaseScoreMain.main("-e", evidenceFile.getParent().toString()
+                        , "-t", targetFile.getParent().toString()
+                        , "-d", diseaseFile.getParent().toString()
+                        , "-o", outputDir.toString()
+                        , "-sn", "2", "-pt", "3", "-ph");
+
+                var targetsByPart = new ArrayList<Set<Object>>();
+                try (var files = Files.list(outputDir.resolve("joint_dataset"))) {
+                    for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+                        try (var in = new GZIPInputStream(Files.newInputStream(file))) {
+                            var targets = new HashSet<>();
+                            jsonIO.readObjects(in, TDAssociation.class, a -> targets.add(a.getTargetId()));
+                            targetsByPart.add(targets);
+                        }
+                    }
+                }
+
+                assertAll("Test partitions"
+                        , () -> assertEquals(3, targetsByPart.size())
+                        , () -> assertFalse(Files.exists(outputDir.resolve("joint_dataset.json")))
+                        , () -> assertEquals(Set.of("1", "2"), targetsByPart.stream()
+                                .flatMap(Set::stream).collect(Collectors.toSet()))
+                        , () -> assertEquals(2, targetsByPart.stream().mapToInt(Set::size).sum()));
+            }
+        }
+
+        @Nested
+        @DisplayName("When we run the main method with an arrow copy of the joint data set")
+        public class testMainWithArrow {
+            @Test
+            @DisplayName("Then the method writes the single json file and an arrow file with all columns")
+            public void givenDataFiles_runMainWithArrow() throws IOException {
+
+                Path outputDir = Files.createDirectories(dataDir.resolve("arrow"));
+                TargetDiseaseScoreMain.main("-e", evidenceFile.getParent().toString()
+                        , "-t", targetFile.getParent().toString()
+                        , "-d", diseaseFile.getParent().toString()
+                        , "-o", outputDir.toString()
+                        , "-sn", "2", "-ar");
+
+                byte[] arrow = Files.readAllBytes(outputDir.resolve("joint_dataset.arrow"));
+
+                assertAll("Test arrow output"
+                        , () -> assertEquals(5, Files.readAllLines(outputDir.resolve("joint_dataset.json")).size())
+                        , () -> assertFalse(Files.exists(outputDir.resolve("joint_dataset")))
+                        , () -> assertEquals("ARROW1", new String(arrow, 0, 6, StandardCharsets.US_ASCII))
+                        , () -> assertEquals("ARROW1", new String(arrow, arrow.length - 6, 6
+                                , StandardCharsets.US_ASCII))
+                        , () -> assertEquals(List.of("targetId", "diseaseId", "median", "top3"
+                                , "approvedSymbol", "name"), arrowFieldNames(arrow)));
+            }
+        }
+
+        @Nested
+        @DisplayName("When we run the main method twice with the cache enabled")
+        public class testMainWithCache {
+            @Test
+            @DisplayName("Then the second run reads the cache and produces the same results")
+            public void givenDataFiles_runMainTwice() throws IOException {
+
+                // redirect standard output stream
+                final PrintStream standardOut = System.out;
+                final ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
+                System.setOut(new PrintStream(outputStreamCaptor));
+
+                Path outputDir = Files.createDirectories(dataDir.resolve("cached"));
+                String[] args = {"-e", evidenceFile.getParent().toString()
+                        , "-t", targetFile.getParent().toString()
+                        , "-d", diseaseFile.getParent().toString()
+                        , "-o", outputDir.toString()
+                        , "-sn", "2", "-c"};
+
+                TargetDiseaseScoreMain.main(args);
+                var firstOutput = Files.readAllLines(outputDir.resolve("joint_dataset.json"));
+
+                TargetDiseaseScoreMain.main(args);
+                var secondOutput = Files.readAllLines(outputDir.resolve("joint_dataset.json"));
+
+
+                // restore standard output
+                System.setOut(standardOut);
+
+
+                assertAll("Test that cache files exist and the results are the same"
+                        , () -> assertTrue(Files.exists(BinaryCache.cacheFile(evidenceFile.getParent(), "evidence")))
+                        , () -> assertTrue(Files.exists(BinaryCache.cacheFile(targetFile.getParent(), "target")))
+                        , () -> assertTrue(Files.exists(BinaryCache.cacheFile(diseaseFile.getParent(), "disease")))
+                        , () -> assertEquals(5, secondOutput.size())
+                        , () -> assertEquals(firstOutput, secondOutput)
+                        , () -> assertFalse(outputStreamCaptor.toString().contains("Could not write cache")
+                                , () -> "The output should have no cache warnings")
+                        , () -> assertFalse(outputStreamCaptor.toString().contains("Ignoring unreadable cache")
+                                , () -> "The output should have no cache warnings")
+                );
+            }
+        }
+
         @Nested
         @DisplayName("When we run the main method with an incorrect argument string")
         public class testMainWithBadArgs {
@@ -186,24 +396,27 @@ public class TargetDiseaseScoreMainIntegrationTest {
             }
         }
     }
-}
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
 
+    // field names of the schema in the footer of an arrow file, read from the flatbuffer tables
+    private static List<String> arrowFieldNames(byte[] arrow) {
+        ByteBuffer bytes = ByteBuffer.wrap(arrow).order(ByteOrder.LITTLE_ENDIAN);
+        int footer = arrow.length - 10 - bytes.getInt(arrow.length - 10);
 
+        int schema = tableField(bytes, footer + bytes.getInt(footer), 1);
+        int fields = tableField(bytes, schema, 1);
 
+        var names = new ArrayList<String>();
+        for (int i = 0; i < bytes.getInt(fields); i++) {
+            int name = tableField(bytes, fields + 4 + i * 4 + bytes.getInt(fields + 4 + i * 4), 0);
+            names.add(new String(arrow, name + 4, bytes.getInt(name), StandardCharsets.UTF_8));
+        }
+        return names;
+    }
 
+    // position of what the offset field of a table points to
+    private static int tableField(ByteBuffer bytes, int table, int id) {
+        int vtable = table - bytes.getInt(table);
+        int field = table + bytes.getShort(vtable + 4 + id * 2);
+        return field + bytes.getInt(field);
+    }
+}
@@ -1,25 +1,38 @@
 package TargetDiseaseScore;
 
 import TargetDiseaseScore.cli.ProgressReporter;
+import TargetDiseaseScore.data.IdColumn;
+import TargetDiseaseScore.data.IdDictionary;
+import TargetDiseaseScore.data.MissingReference;
 import TargetDiseaseScore.dto.Disease;
+import TargetDiseaseScore.dto.TDAssociation;
+import TargetDiseaseScore.dto.TDComposite;
 import TargetDiseaseScore.dto.TDEvidence;
 import TargetDiseaseScore.dto.Target;
 import TargetDiseaseScore.io.JsonIO;
+import TargetDiseaseScore.search.OverlapIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -142,6 +155,127 @@ public class TargetDiseaseScoreMainUnitTest {
                 , () -> assertEquals(3, diseaseMap.size()));
     }
 
+    @Test
+    @DisplayName("Test streaming evidence extraction from json files")
+    public void testEvidenceExtraction() {
+
+        var evidence = processor.getEvidenceAccumulator
+                (evidenceFile.getParent(), jsonFilter, jsonIO);
+
+        assertAll("Test that evidence is grouped by target-disease pairs"
+                , () -> assertEquals(5, evidence.size())
+                , () -> assertEquals(16, IntStream.range(0, evidence.size())
+                        .map(evidence::getCount).sum()));
+    }
+
+    @Test
+    @DisplayName("Test evidence extraction from gzip compressed json files")
+    public void testCompressedEvidenceExtraction() throws IOException {
+
+        // the same evidence split into a plain and a compressed file
+        Path compressedDir = dataDir.resolve("compressed");
+        Files.createDirectories(compressedDir);
+
+        var lines = Files.readAllLines(evidenceFile);
+        Files.write(compressedDir.resolve("part-0.json"), lines.subList(0, 5));
+        try (var out = new PrintStream(new GZIPOutputStream
+                (Files.newOutputStream(compressedDir.resolve("part-1.json.gz"))))) {
+            lines.subList(5, lines.size()).forEach(out::println);
+        }
+
+        final PathMatcher match = FileSystems.getDefault()
+                .getPathMatcher("glob:*.{json,json.gz}");
+
+        var evidence = processor.getEvidenceAccumulator
+                (compressedDir, path -> match.matches(path.getFileName()), jsonIO);
+
+        assertAll("Test that evidence from both files is grouped by target-disease pairs"
+                , () -> assertEquals(5, evidence.size())
+                , () -> assertEquals(16, IntStream.range(0, evidence.size())
+                        .map(evidence::getCount).sum()));
+    }
+
+    @Test
+    @DisplayName("Test generating Overall Scores from the evidence accumulator")
+    public void testOverallScoresFromAccumulator() {
+
+        var evidence = processor.getEvidenceAccumulator
+                (evidenceFile.getParent(), jsonFilter, jsonIO);
+
+        var overallScores = processor
+                .generateOverallScores(evidence, 3);
+
+        assertAll("Test generating overall scores for all target-disease pairs"
+                , () -> assertEquals(5, overallScores.size())
+                , () -> assertEquals(List.of(0.6, 0.4, 0.2), overallScores.stream()
+                        .filter(e -> e.getMedianScore() == 0.4)
+                        .findFirst().orElseThrow().getTopScores())
+                , () -> assertEquals(List.of(2.0, 1.0, 0.0), overallScores.stream()
+                        .filter(e -> e.getMedianScore() == 0.5)
+                        .findFirst().orElseThrow().getTopScores())
+                , () -> assertEquals(1, overallScores.stream()
+                        .filter(e -> e.getMedianScore() == 1).count())
+                , () -> assertEquals(1, overallScores.stream()
+                        .filter(e -> e.getMedianScore() == 3.0).count())
+                , () -> assertEquals(List.of(6.0, 4.0, 2.0), overallScores.stream()
+                        .filter(e -> e.getMedianScore() == 4.0)
+                        .findFirst().orElseThrow().getTopScores())
+        );
+    }
+
+    @Test
+    @DisplayName("Test loading only targets and diseases referenced by overall scores")
+    public void testProjectedMapExtraction() {
+
+        var overallScores = List.of(
+                new TDComposite("2", "3", 0.4, List.of(0.6, 0.4, 0.2))
+                , new TDComposite("2", "1", 3.0, List.of(5.0, 3.0, 0.0)));
+
+        // the same dense IDs the semi-join takes in main
+        var targetIds = IdColumn.of(overallScores.size(), i -> overallScores.get(i).getTargetId());
+        var diseaseIds = IdColumn.of(overallScores.size(), i -> overallScores.get(i).getDiseaseId());
+
+        var targetMap = processor.getProjectedMap
+                (targetFile.getParent(), jsonFilter, "id", "approvedSymbol"
+                        , targetIds.getDictionary(), Target::new, jsonIO);
+
+        var diseaseMap = processor.getProjectedMap
+                (diseaseFile.getParent(), jsonFilter, "id", "name"
+                        , diseaseIds.getDictionary(), Disease::new, jsonIO);
+
+        var allDiseases = processor.getProjectedMap
+                (diseaseFile.getParent(), jsonFilter, "id", "name", null, Disease::new, jsonIO);
+
+        assertAll("Test that only referenced objects are loaded"
+                , () -> assertEquals(Set.of("2"), targetMap.keySet())
+                , () -> assertEquals("BBB", targetMap.get("2").getApprovedSymbol())
+                , () -> assertEquals(Set.of("1", "3"), diseaseMap.keySet())
+                , () -> assertEquals("Disease Three", diseaseMap.get("3").getName())
+                , () -> assertEquals(3, allDiseases.size()));
+    }
+
+    @Test
+    @DisplayName("Test loading targets and diseases before the referenced IDs are known")
+    public void testSemiJoinedMapExtraction() {
+        var neededTargets = new CompletableFuture<IdDictionary>();
+        var neededDiseases = new CompletableFuture<IdDictionary>();
+
+        // loading starts right away and waits for the IDs only to apply them
+        var targetsLoad = CompletableFuture.supplyAsync(() -> processor.getSemiJoinedMap
+                (targetFile.getParent(), jsonFilter, "id", "approvedSymbol", neededTargets, Target::new, jsonIO));
+        var diseasesLoad = CompletableFuture.supplyAsync(() -> processor.getCachedSemiJoinedMap
+                (diseaseFile.getParent(), jsonFilter, "disease", "id", "name", neededDiseases, Disease::new, jsonIO));
+
+        var targetIds = new IdDictionary();
+        targetIds.add("2");
+        neededTargets.complete(targetIds);
+        neededDiseases.complete(null);
+
+        assertAll("Test that the referenced IDs are applied once known"
+                , () -> assertEquals(Set.of("2"), targetsLoad.join().keySet())
+                , () -> assertEquals(3, diseasesLoad.join().size()));
+    }
+
     @Test
     @DisplayName("Test generating Overall Scores")
     public void testOverallScores() {
@@ -237,6 +371,93 @@ public class TargetDiseaseScoreMainUnitTest {
         );
     }
 
+    @Test
+    @DisplayName("Test joint data set with targets and diseases missing from the dumps")
+    public void testJointQueryMissingReferences() {
+        var overallScores = List.of(
+                new TDComposite("1", "1", 1.0, List.of(1.0))
+                , new TDComposite("2", "1", 2.0, List.of(2.0))
+                , new TDComposite("1", "3", 3.0, List.of(3.0))
+                , new TDComposite("1", "2", 4.0, List.of(4.0)));
+
+        // target 2 and disease 3 are not in the dumps
+        var targetMap = Map.of("1", new Target("1", "AAA"));
+        var diseaseMap = Map.of("1", new Disease("1", "Disease One"), "2", new Disease("2", "Disease Two"));
+
+        var targetIds = IdColumn.of(overallScores.size(), i -> overallScores.get(i).getTargetId());
+        var diseaseIds = IdColumn.of(overallScores.size(), i -> overallScores.get(i).getDiseaseId());
+
+        var dropped = processor.jointQuery(overallScores, targetIds, diseaseIds
+                , targetMap, diseaseMap, MissingReference.DROP);
+        var kept = processor.jointQuery(overallScores, targetIds, diseaseIds
+                , targetMap, diseaseMap, MissingReference.NULL);
+
+        assertAll("Test missing reference policies"
+                , () -> assertEquals(List.of("AAA", "AAA"), dropped.stream()
+                        .map(TDAssociation::getApprovedSymbol).collect(Collectors.toList()))
+                , () -> assertEquals(List.of("Disease One", "Disease Two"), dropped.stream()
+                        .map(TDAssociation::getName).collect(Collectors.toList()))
+                , () -> assertEquals(Arrays.asList("AAA", null, "AAA", "AAA"), kept.stream()
+                        .map(TDAssociation::getApprovedSymbol).collect(Collectors.toList()))
+                , () -> assertEquals(Arrays.asList("Disease One", "Disease One", null, "Disease Two"), kept.stream()
+                        .map(TDAssociation::getName).collect(Collectors.toList()))
+                , () -> assertEquals(4, processor.jointQuery(overallScores, targetMap, diseaseMap).size()));
+    }
+
+    @Test
+    @DisplayName("Test searching for disease-disease pairs that share at least 1 target")
+    public void testDiseaseDiseaseSearch() {
+        var evidenceMap = processor.getMapOfGroups
+                (evidenceFile.getParent(), jsonFilter
+                        , TDEvidence.class, e -> e.getTargetId() + e.getDiseaseId()
+                        , jsonIO );
+
+        var overallScores = processor
+                .generateOverallScores(evidenceMap, 3);
+
+        var index = OverlapIndex.of(overallScores);
+        var diseaseOverlaps = processor.getDiseasePairsWithSharedTargets(index, 1);
+
+        // every two diseases of a target share it
+        var expected = overallScores.stream()
+                .collect(Collectors.groupingBy(TDComposite::getTargetId
+                        , Collectors.mapping(TDComposite::getDiseaseId, Collectors.toSet())))
+                .values().stream()
+                .flatMap(diseases -> diseases.stream()
+                        .flatMap(a -> diseases.stream().filter(b -> a.compareTo(b) < 0).map(b -> Set.of(a, b))))
+                .collect(Collectors.toSet());
+
+        assertAll("Test searching for disease-disease pairs"
+                , () -> assertEquals(expected, diseaseOverlaps.stream()
+                        .map(p -> Set.of(p.getDiseaseIdA(), p.getDiseaseIdB())).collect(Collectors.toSet()))
+                , () -> assertEquals(expected.size(), processor.countDiseasePairsWithSharedTargets(index, 1))
+                , () -> assertEquals(0, processor.countDiseasePairsWithSharedTargets(index, 3))
+        );
+    }
+
+    @Test
+    @DisplayName("Test approximate search for target-target pairs that share at least 2 diseases")
+    public void testApproximateTargetTargetSearch() {
+        var evidenceMap = processor.getMapOfGroups
+                (evidenceFile.getParent(), jsonFilter
+                        , TDEvidence.class, e -> e.getTargetId() + e.getDiseaseId()
+                        , jsonIO );
+
+        var overallScores = processor
+                .generateOverallScores(evidenceMap, 3);
+
+        // many single-row bands: any pair sharing a disease becomes a candidate
+        var targetOverlaps = processor
+                .getApproximateTargetPairsWithSharedDiseases(overallScores, 2, 200, 1);
+
+        assertAll("Test approximate search for target-target pairs"
+                , () -> assertEquals(1, targetOverlaps.size())
+                , () -> assertEquals(Set.of("1", "2"), Set.of(targetOverlaps.get(0).getTargetIdA()
+                        , targetOverlaps.get(0).getTargetIdB()))
+                , () -> assertEquals(Set.of("1", "2"), targetOverlaps.get(0).getDiseasesShared())
+        );
+    }
+
     @Test
     @DisplayName("Test searching for target-target pairs that share at least 2 diseases")
     public void testTargetTargetSearch() {
@@ -276,30 +497,24 @@ public class TargetDiseaseScoreMainUnitTest {
                         .filter(e -> e.getDiseasesShared().equals(Set.of("1", "2"))).count())
         );
     }
-}
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
 
+    @Test
+    @DisplayName("Test reporting a stage count beyond the int range")
+    public void testStageReportsLongCount() {
+        var printed = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+        long count = 3L << 31;
+
+        long result;
+        System.setOut(new PrintStream(printed, true));
+        try {
+            result = new ProgressReporter().stage("counting pairs", "pairs", () -> count, Long::longValue);
+        } finally {
+            System.setOut(stdout);
+        }
 
+        assertAll("Test long stage count"
+                , () -> assertEquals(count, result)
+                , () -> assertTrue(printed.toString().contains("Number of pairs: " + count)));
+    }
+}
@@ -1,10 +1,14 @@
 package TargetDiseaseScore.cli;
 
+import TargetDiseaseScore.data.MissingReference;
+import TargetDiseaseScore.search.PairSimilarity;
+import TargetDiseaseScore.search.PairWeighting;
 import org.apache.commons.cli.ParseException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Path;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -44,6 +48,115 @@ public class CommandLineParametersUnitTest {
                 ()-> assertEquals(clp.getPathToDiseases(), dataDir),
                 ()-> assertEquals(clp.getPathToTargets(), dataDir),
                 ()-> assertEquals(clp.getPathToEvidence(), dataDir),
-                ()-> assertEquals(clp.getMinSharedNumber(), 2));
+                ()-> assertEquals(clp.getMinSharedNumber(), 2),
+                ()-> assertEquals(clp.getMaxExactScores(), Integer.MAX_VALUE),
+                ()-> assertFalse(clp.isSharedHistogram()),
+                ()-> assertFalse(clp.isApproximate()),
+                ()-> assertEquals(0, clp.getNumberOfTopPairs()),
+                ()-> assertEquals(PairSimilarity.OVERLAP, clp.getSimilarity()),
+                ()-> assertEquals(PairWeighting.SHARED, clp.getWeighting()),
+                ()-> assertEquals(0, clp.getNumberOfPartitions()));
+    }
+
+    @Test
+    public void givenBadMaxExactScores_whenParse_throwException(@TempDir Path dataDir) {
+        Throwable exception = assertThrows(ParseException.class
+                , () -> clp.parse("-o", dataDir.toString()
+                        , "-e", dataDir.toString(), "-t", dataDir.toString()
+                        , "-d", dataDir.toString(), "-mx", "0"));
+    }
+
+    @Test
+    public void givenLshOptions_whenParse_valuesAreAvailable(@TempDir Path dataDir) throws ParseException {
+        clp.parse("-o", dataDir.toString()
+                , "-e", dataDir.toString(), "-t", dataDir.toString()
+                , "-d", dataDir.toString(), "-lsh", "20,5", "-lv");
+
+        assertAll("lsh options",
+                ()-> assertTrue(clp.isApproximate()),
+                ()-> assertEquals(20, clp.getLshBands()),
+                ()-> assertEquals(5, clp.getLshRows()),
+                ()-> assertTrue(clp.isLshVerify()));
+    }
+
+    @Test
+    public void givenBadLshOptions_whenParse_throwException(@TempDir Path dataDir) {
+        String[] paths = {"-o", dataDir.toString()
+                , "-e", dataDir.toString(), "-t", dataDir.toString(), "-d", dataDir.toString()};
+
+        assertAll("bad lsh options",
+                ()-> assertThrows(ParseException.class, () -> clp.parse(concat(paths, "-lsh", "20"))),
+                ()-> assertThrows(ParseException.class, () -> clp.parse(concat(paths, "-lsh", "0,5"))),
+                ()-> assertThrows(ParseException.class, () -> clp.parse(concat(paths, "-lsh", "20,5", "-hg"))),
+                ()-> assertThrows(ParseException.class, () -> clp.parse(concat(paths, "-lv"))));
+    }
+
+    @Test
+    public void givenTopPairsOptions_whenParse_valuesAreAvailable(@TempDir Path dataDir) throws ParseException {
+        clp.parse("-o", dataDir.toString()
+                , "-e", dataDir.toString(), "-t", dataDir.toString()
+                , "-d", dataDir.toString(), "-tk", "100", "-sm", "Jaccard");
+
+        assertAll("top pairs options",
+                ()-> assertEquals(100, clp.getNumberOfTopPairs()),
+                ()-> assertEquals(PairSimilarity.JACCARD, clp.getSimilarity()),
+                ()-> assertThrows(ParseException.class, () -> clp.parse("-o", dataDir.toString()
+                        , "-e", dataDir.toString(), "-t", dataDir.toString()
+                        , "-d", dataDir.toString(), "-tk", "10", "-sm", "cosine")),
+                ()-> assertThrows(ParseException.class, () -> clp.parse("-o", dataDir.toString()
+                        , "-e", dataDir.toString(), "-t", dataDir.toString()
+                        , "-d", dataDir.toString(), "-sm", "jaccard")),
+                ()-> assertThrows(ParseException.class, () -> clp.parse("-o", dataDir.toString()
+                        , "-e", dataDir.toString(), "-t", dataDir.toString()
+                        , "-d", dataDir.toString(), "-tk", "0", "-sm", "jaccard")));
+    }
+
+    @Test
+    public void givenWeightingOption_whenParse_valuesAreAvailable(@TempDir Path dataDir) throws ParseException {
+        String[] paths = {"-o", dataDir.toString()
+                , "-e", dataDir.toString(), "-t", dataDir.toString(), "-d", dataDir.toString()};
+
+        clp.parse(concat(paths, "-wp", "-wt", "min_sum"));
+
+        assertAll("weighting options",
+                ()-> assertEquals(PairWeighting.MIN_SUM, clp.getWeighting()),
+                ()-> assertThrows(ParseException.class, () -> clp.parse(concat(paths, "-wp", "-wt", "jaccard"))),
+                ()-> assertThrows(ParseException.class, () -> clp.parse(concat(paths, "-wt", "cosine"))));
+    }
+
+    @Test
+    public void givenPartitionOptions_whenParse_valuesAreAvailable(@TempDir Path dataDir) throws ParseException {
+        String[] paths = {"-o", dataDir.toString()
+                , "-e", dataDir.toString(), "-t", dataDir.toString(), "-d", dataDir.toString()};
+
+        clp.parse(concat(paths, "-pt", "8", "-ph"));
+
+        assertAll("partition options",
+                ()-> assertEquals(8, clp.getNumberOfPartitions()),
+                ()-> assertTrue(clp.isPartitionByHash()),
+                ()-> assertThrows(ParseException.class, () -> clp.parse(concat(paths, "-pt", "-1"))),
+                ()-> assertThrows(ParseException.class, () -> clp.parse(concat(paths, "-ph"))));
+    }
+
+    @Test
+    public void givenMissingOption_whenParse_valueIsAvailable(@TempDir Path dataDir) throws ParseException {
+        String[] paths = {"-o", dataDir.toString()
+                , "-e", dataDir.toString(), "-t", dataDir.toString(), "-d", dataDir.toString()};
+
+        clp.parse(paths);
+        MissingReference byDefault = clp.getMissingReference();
+
+        clp.parse(concat(paths, "-mr", "drop"));
+
+        assertAll("missing reference options",
+                ()-> assertEquals(MissingReference.REPORT, byDefault),
+                ()-> assertEquals(MissingReference.DROP, clp.getMissingReference()),
+                ()-> assertThrows(ParseException.class, () -> clp.parse(concat(paths, "-mr", "fail"))));
+    }
+
+    private static String[] concat(String[] first, String... second) {
+        String[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
     }
 }
@@ -0,0 +1,59 @@
+package TargetDiseaseScore.data;
+
+import TargetDiseaseScore.dto.TDAssociation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AssociationOrderUnitTest {
+
+    private static List<TDAssociation> sorted(List<TDAssociation> rows) {
+        var targetIds = IdColumn.of(rows.size(), i -> rows.get(i).getTargetId());
+        var diseaseIds = IdColumn.of(rows.size(), i -> rows.get(i).getDiseaseId());
+        int[] targetRanks = targetIds.getSortedRanks();
+        int[] diseaseRanks = diseaseIds.getSortedRanks();
+
+        int[] order = AssociationOrder.byMedian(rows.size(), i -> rows.get(i).getMedian()
+                , i -> targetRanks[targetIds.getIndex(i)], targetRanks.length
+                , i -> diseaseRanks[diseaseIds.getIndex(i)], diseaseRanks.length);
+        return Arrays.stream(order).mapToObj(rows::get).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Test order by median, targetId and diseaseId for any input order")
+    public void testDeterministicOrder() {
+        var random = new Random(3);
+        var rows = new ArrayList<TDAssociation>();
+        for (int t = 0; t < 150; t++) {
+            for (int d = 0; d < 80; d++) {
+                if (random.nextInt(3) == 0) {
+                    // few distinct medians, many ties, negative values and both zeros
+                    double median = random.nextInt(9) == 0 ? -0.0 : (random.nextInt(11) - 3) / 4.0;
+                    rows.add(new TDAssociation("ENSG" + t, "EFO_" + d, median, List.of(), null, null));
+                }
+            }
+        }
+
+        var expected = new ArrayList<>(rows);
+        expected.sort(Comparator.comparingDouble(TDAssociation::getMedian)
+                .thenComparing(TDAssociation::getTargetId)
+                .thenComparing(TDAssociation::getDiseaseId));
+
+        var shuffled = new ArrayList<>(rows);
+        Collections.shuffle(shuffled, random);
+
+        assertAll("Test association order"
+                , () -> assertEquals(expected, sorted(rows))
+                , () -> assertEquals(expected, sorted(shuffled))
+                , () -> assertEquals(0, AssociationOrder.byMedian(0, i -> 0, i -> 0, 0, i -> 0, 0).length));
+    }
+}
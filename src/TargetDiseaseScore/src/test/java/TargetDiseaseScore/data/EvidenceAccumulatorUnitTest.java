@@ -0,0 +1,77 @@
+package TargetDiseaseScore.data;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvidenceAccumulatorUnitTest {
+
+    private static void add(EvidenceAccumulator accumulator, String target, String disease, double score) {
+        accumulator.add(accumulator.getTargets().add(target), accumulator.getDiseases().add(disease), score);
+    }
+
+    private static double[] scoresOf(EvidenceAccumulator accumulator, String target, String disease) {
+        for (int a = 0; a < accumulator.size(); a++) {
+            if (accumulator.getTargetId(a).equals(target) && accumulator.getDiseaseId(a).equals(disease)) {
+                double[] scores = Arrays.copyOf(accumulator.getScores(a), accumulator.getCount(a));
+                Arrays.sort(scores);
+                return scores;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    @DisplayName("Test accumulating and merging scores of target-disease associations")
+    public void testAddAndMerge() {
+        var first = new EvidenceAccumulator();
+        add(first, "T1", "D1", 0.1);
+        add(first, "T1", "D2", 0.2);
+        for (int i = 0; i < 10; i++) {
+            add(first, "T1", "D1", i);
+        }
+
+        // same ids get different local indices in the second accumulator
+        var second = new EvidenceAccumulator();
+        add(second, "T2", "D2", 0.5);
+        add(second, "T1", "D1", 0.3);
+        add(second, "T1", "D2", 0.4);
+
+        var merged = first.merge(second);
+
+        assertAll("Test merged associations"
+                , () -> assertSame(first, merged)
+                , () -> assertEquals(3, merged.size())
+                , () -> assertEquals(12, merged.getCount(0))
+                , () -> assertArrayEquals(new double[]{0.2, 0.4}, scoresOf(merged, "T1", "D2"))
+                , () -> assertArrayEquals(new double[]{0.5}, scoresOf(merged, "T2", "D2"))
+                , () -> assertEquals(0.3, scoresOf(merged, "T1", "D1")[2]));
+    }
+
+    @Test
+    @DisplayName("Test associations beyond the exact limit keep count, top scores and a median sketch")
+    public void testBoundedAccumulation() {
+        var first = new EvidenceAccumulator(4, 3);
+        var second = new EvidenceAccumulator(4, 3);
+        for (int i = 1; i <= 9; i++) {
+            add(i % 2 == 0 ? first : second, "T1", "D1", i);
+        }
+        add(first, "T1", "D2", 0.5);
+        add(second, "T1", "D2", 0.7);
+
+        var merged = first.merge(second);
+
+        assertAll("Test bounded associations"
+                , () -> assertEquals(2, merged.size())
+                , () -> assertFalse(merged.isExact(0))
+                , () -> assertEquals(9, merged.getCount(0))
+                , () -> assertArrayEquals(new double[]{9, 8, 7}, merged.getTopScores(0))
+                , () -> assertEquals(5, merged.getApproximateMedian(0), 1)
+                , () -> assertTrue(merged.isExact(1))
+                , () -> assertThrows(IllegalStateException.class, () -> merged.getScores(0))
+                , () -> assertThrows(IllegalArgumentException.class, () -> new EvidenceAccumulator(0, 3)));
+    }
+}
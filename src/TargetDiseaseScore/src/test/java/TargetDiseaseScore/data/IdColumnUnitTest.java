@@ -0,0 +1,32 @@
+package TargetDiseaseScore.data;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdColumnUnitTest {
+
+    @Test
+    @DisplayName("Test dense indices of an ID column and values resolved by index")
+    public void testIndicesAndResolve() {
+        var rows = List.of("ENSG2", "ENSG1", "ENSG2", "ENSG3", "ENSG1");
+        var column = IdColumn.of(rows.size(), rows::get);
+
+        var symbols = column.resolve(Map.of("ENSG1", "AAA", "ENSG2", "BBB"));
+
+        assertAll("Test ID column"
+                , () -> assertEquals(5, column.size())
+                , () -> assertEquals(3, column.getDictionary().size())
+                , () -> assertArrayEquals(new int[]{0, 1, 0, 2, 1}, new int[]{column.getIndex(0)
+                        , column.getIndex(1), column.getIndex(2), column.getIndex(3), column.getIndex(4)})
+                , () -> assertEquals(Arrays.asList("BBB", "AAA", null), symbols)
+                , () -> assertEquals("AAA", symbols.get(column.getIndex(4)))
+                , () -> assertArrayEquals(new int[]{1, 0, 2}, column.getSortedRanks())
+                , () -> assertEquals(0, IdColumn.of(0, rows::get).getDictionary().size()));
+    }
+}
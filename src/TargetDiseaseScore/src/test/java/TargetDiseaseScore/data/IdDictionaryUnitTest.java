@@ -0,0 +1,63 @@
+package TargetDiseaseScore.data;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdDictionaryUnitTest {
+
+    @Test
+    @DisplayName("Test dense indices for string and char buffer lookups")
+    public void testAddAndLookup() {
+        var dictionary = new IdDictionary();
+
+        char[] buffer = "xxENSG00000121879yy".toCharArray();
+
+        assertAll("Test that both lookup paths agree"
+                , () -> assertEquals(0, dictionary.add("EFO_0003847"))
+                , () -> assertEquals(1, dictionary.add(buffer, 2, 15))
+                , () -> assertEquals(1, dictionary.add("ENSG00000121879"))
+                , () -> assertEquals(0, dictionary.indexOf("EFO_0003847".toCharArray(), 0, 11))
+                , () -> assertEquals("ENSG00000121879", dictionary.get(1))
+                , () -> assertEquals(-1, dictionary.indexOf("MONDO_0033947"))
+                , () -> assertEquals(2, dictionary.size()));
+    }
+
+    @Test
+    @DisplayName("Test dictionary growth and merging")
+    public void testGrowthAndMapping() {
+        var local = new IdDictionary(4);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, local.add("ID_" + i));
+        }
+
+        var global = new IdDictionary();
+        global.add("ID_999");
+        int[] remap = local.mapTo(global);
+
+        assertAll("Test that all ids survive rehashing and translate to the other dictionary"
+                , () -> assertEquals(1000, local.size())
+                , () -> assertEquals(1000, global.size())
+                , () -> assertEquals(0, remap[999])
+                , () -> assertEquals("ID_500", global.get(remap[500]))
+                , () -> assertEquals(737, local.indexOf("ID_737")));
+    }
+
+    @Test
+    @DisplayName("Test packed keys do not collide where concatenated strings do")
+    public void testAssociationKey() {
+        var targets = new IdDictionary();
+        var diseases = new IdDictionary();
+
+        long a = AssociationKey.pack(targets.add("ENSG1"), diseases.add("23"));
+        long b = AssociationKey.pack(targets.add("ENSG12"), diseases.add("3"));
+
+        assertAll("Test packing and unpacking"
+                , () -> assertNotEquals(a, b)
+                , () -> assertEquals(1, AssociationKey.first(b))
+                , () -> assertEquals(1, AssociationKey.second(b))
+                , () -> assertEquals(Integer.MAX_VALUE
+                        , AssociationKey.second(AssociationKey.pack(7, Integer.MAX_VALUE))));
+    }
+}
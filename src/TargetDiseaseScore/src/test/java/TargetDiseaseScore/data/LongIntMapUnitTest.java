@@ -0,0 +1,26 @@
+package TargetDiseaseScore.data;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongIntMapUnitTest {
+
+    @Test
+    @DisplayName("Test putIfAbsent and get across rehashing")
+    public void testPutAndGet() {
+        var map = new LongIntMap();
+
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(LongIntMap.NO_VALUE, map.putIfAbsent(AssociationKey.pack(i, i % 7), i));
+        }
+
+        assertAll("Test stored values"
+                , () -> assertEquals(10_000, map.size())
+                , () -> assertEquals(42, map.get(AssociationKey.pack(42, 0)))
+                , () -> assertEquals(42, map.putIfAbsent(AssociationKey.pack(42, 0), 1))
+                , () -> assertEquals(LongIntMap.NO_VALUE, map.get(AssociationKey.pack(42, 1)))
+                , () -> assertThrows(IllegalArgumentException.class, () -> map.putIfAbsent(1L, -5)));
+    }
+}
@@ -0,0 +1,49 @@
+package TargetDiseaseScore.data;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuantileSketchUnitTest {
+
+    @Test
+    @DisplayName("Test sketch median is exact while nothing is compacted")
+    public void testExactMedian() {
+        var sketch = new QuantileSketch(16);
+        for (double v : new double[]{1, 2, 3, 4, 5, 6, 8, 9}) {
+            sketch.add(v);
+        }
+
+        assertAll("Test small sketch"
+                , () -> assertEquals(8, sketch.getCount())
+                , () -> assertEquals(4.5, sketch.median(), 0)
+                , () -> assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(16).median()));
+    }
+
+    @Test
+    @DisplayName("Test sketch median stays close to the exact median on large inputs")
+    public void testApproximateMedian() {
+        var random = new Random(42);
+        double[] values = new double[100_000];
+
+        var first = new QuantileSketch(64);
+        var second = new QuantileSketch(64);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble();
+            (i % 3 == 0 ? first : second).add(values[i]);
+        }
+        first.merge(second);
+
+        Arrays.sort(values);
+        double exact = (values[values.length / 2 - 1] + values[values.length / 2]) / 2;
+
+        // rank error of the sketch translates to value error on uniform data
+        assertAll("Test merged sketch"
+                , () -> assertEquals(values.length, first.getCount())
+                , () -> assertEquals(exact, first.median(), 0.02));
+    }
+}
@@ -0,0 +1,300 @@
+package TargetDiseaseScore.io;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArrowFileWriterUnitTest {
+
+    @TempDir
+    static Path dataDir;
+
+    @Test
+    @DisplayName("Test reading back an arrow file with dictionaries and several record batches")
+    public void testRoundTrip() throws IOException {
+        int numberOfRows = 2500;
+        var ids = IntStream.range(0, numberOfRows).mapToObj(i -> "ENSG" + i % 37).collect(Collectors.toList());
+        var names = IntStream.range(0, numberOfRows).mapToObj(i -> i % 5 == 0 ? null : "näme " + i % 11)
+                .collect(Collectors.toList());
+        double[] medians = IntStream.range(0, numberOfRows).mapToDouble(i -> i / 7.0).toArray();
+        var tops = IntStream.range(0, numberOfRows)
+                .mapToObj(i -> i % 9 == 0 ? null : IntStream.range(0, i % 4).mapToObj(k -> i + k / 10.0)
+                        .collect(Collectors.toList()))
+                .collect(Collectors.toList());
+
+        Path file = dataDir.resolve("table.arrow");
+        new ArrowFileWriter(numberOfRows, 1000)
+                .addStrings("targetId", ids::get)
+                .addStrings("name", names::get)
+                .addDoubles("median", i -> medians[i])
+                .addDoubleLists("top3", tops::get)
+                .write(file);
+
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        int footerLength = bytes.getInt(bytes.limit() - 10);
+        var footer = Table.root(slice(bytes, bytes.limit() - 10 - footerLength, footerLength));
+
+        // schema
+        var fields = footer.table(1).tables(1);
+        var fieldNames = fields.stream().map(f -> f.string(0)).collect(Collectors.toList());
+        var fieldTypes = fields.stream().map(f -> (int) f.getByte(2)).collect(Collectors.toList());
+        var dictionaryIds = fields.stream().map(f -> f.table(4) == null ? -1L : f.table(4).getLong(0))
+                .collect(Collectors.toList());
+        var listItem = fields.get(3).tables(5);
+
+        // dictionaries by id, then the rows of all record batches
+        var dictionaries = new HashMap<Long, List<String>>();
+        for (long[] block : footer.structs(2, 24)) {
+            var message = message(bytes, block);
+            var batch = message.table(2).table(1);
+            dictionaries.put(message.table(2).getLong(0), strings(bytes, block, message, batch));
+        }
+
+        var readIds = new ArrayList<String>();
+        var readNames = new ArrayList<String>();
+        var readMedians = new ArrayList<Double>();
+        var readTops = new ArrayList<List<Double>>();
+        var batchLengths = new ArrayList<Long>();
+        for (long[] block : footer.structs(3, 24)) {
+            var message = message(bytes, block);
+            var batch = message.table(2);
+            batchLengths.add(batch.getLong(0));
+            readBatch(bytes, block, message, batch, dictionaries, readIds, readNames, readMedians, readTops);
+        }
+
+        assertAll("Test arrow file"
+                , () -> assertEquals("ARROW1", new String(Arrays.copyOf(bytes.array(), 6), StandardCharsets.US_ASCII))
+                , () -> assertEquals("ARROW1", new String(Arrays.copyOfRange(bytes.array()
+                        , bytes.limit() - 6, bytes.limit()), StandardCharsets.US_ASCII))
+                , () -> assertEquals(4, footer.getShort(0))
+                , () -> assertEquals(List.of("targetId", "name", "median", "top3"), fieldNames)
+                , () -> assertEquals(List.of(5, 5, 3, 12), fieldTypes)
+                , () -> assertEquals(List.of(0L, 1L, -1L, -1L), dictionaryIds)
+                , () -> assertEquals(32, fields.get(0).table(4).table(1).getInt(0))
+                , () -> assertEquals(2, fields.get(2).table(3).getShort(0))
+                , () -> assertEquals(1, listItem.size())
+                , () -> assertEquals(3, listItem.get(0).getByte(2))
+                , () -> assertEquals(List.of(1000L, 1000L, 500L), batchLengths)
+                , () -> assertEquals(37, dictionaries.get(0L).size())
+                , () -> assertEquals(ids, readIds)
+                , () -> assertEquals(names, readNames)
+                , () -> assertEquals(Arrays.stream(medians).boxed().collect(Collectors.toList()), readMedians)
+                , () -> assertEquals(tops, readTops));
+    }
+
+    @Test
+    @DisplayName("Test an arrow file without rows")
+    public void testEmpty() throws IOException {
+        Path file = dataDir.resolve("empty.arrow");
+        new ArrowFileWriter(0).addStrings("targetId", i -> "").addDoubles("median", i -> 0).write(file);
+
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        int footerLength = bytes.getInt(bytes.limit() - 10);
+        var footer = Table.root(slice(bytes, bytes.limit() - 10 - footerLength, footerLength));
+
+        assertAll("Test empty arrow file"
+                , () -> assertEquals(0, bytes.limit() % 2)
+                , () -> assertEquals(1, footer.structs(3, 24).size())
+                , () -> assertEquals(0, message(bytes, footer.structs(3, 24).get(0)).table(2).getLong(0)));
+    }
+
+    @Test
+    @DisplayName("Test the exact bytes of a schema message without fields")
+    public void testSchemaMessageBytes() throws IOException {
+        Path file = dataDir.resolve("no_columns.arrow");
+        new ArrowFileWriter(0).write(file);
+
+        // worked out by hand from the FlatBuffers layout and Message.fbs / Schema.fbs,
+        // independent of the reader above
+        int[] expected = {
+                'A', 'R', 'R', 'O', 'W', '1', 0, 0,
+                // continuation marker, metadata length 48
+                0xFF, 0xFF, 0xFF, 0xFF, 48, 0, 0, 0,
+                // root offset to the Message table at 16, 2 bytes padding
+                16, 0, 0, 0, 0, 0,
+                // Message vtable: size 10, table size 12, version at 10, header_type at 9, header at 4
+                10, 0, 12, 0, 10, 0, 9, 0, 4, 0,
+                // Message table: vtable 10 bytes back, header offset 16 to the Schema at 36,
+                // padding, header_type Schema (1), version V5 (4)
+                10, 0, 0, 0, 16, 0, 0, 0, 0, 1, 4, 0,
+                // Schema vtable: size 8, table size 8, no endianness (little), fields at 4
+                8, 0, 8, 0, 0, 0, 4, 0,
+                // Schema table: vtable 8 bytes back, fields offset 4 to an empty vector
+                8, 0, 0, 0, 4, 0, 0, 0, 0, 0, 0, 0};
+
+        byte[] bytes = Files.readAllBytes(file);
+        int[] actual = new int[expected.length];
+        for (int i = 0; i < actual.length; i++)
+            actual[i] = bytes[i] & 0xFF;
+
+        assertArrayEquals(expected, actual);
+    }
+
+    // the Message flatbuffer of a block after the continuation marker and length
+    private static Table message(ByteBuffer bytes, long[] block) {
+        int offset = (int) block[0];
+        assertEquals(-1, bytes.getInt(offset));
+        assertEquals(0, (offset + block[1]) % 8);
+        return Table.root(slice(bytes, offset + 8, bytes.getInt(offset + 4)));
+    }
+
+    // a buffer of a record batch as a slice of the message body
+    private static ByteBuffer buffer(ByteBuffer bytes, long[] block, Table batch, int index) {
+        long[] buffer = batch.structs(2, 16).get(index);
+        assertEquals(0, buffer[0] % 8);
+        return slice(bytes, (int) (block[0] + block[1] + buffer[0]), (int) buffer[1]).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static List<String> strings(ByteBuffer bytes, long[] block, Table message, Table batch) {
+        int length = (int) batch.getLong(0);
+        ByteBuffer offsets = buffer(bytes, block, batch, 1);
+        ByteBuffer data = buffer(bytes, block, batch, 2);
+
+        assertEquals(block[2], message.getLong(3));
+
+        var strings = new ArrayList<String>();
+        for (int i = 0; i < length; i++) {
+            var value = slice(data, offsets.getInt(i * 4), offsets.getInt((i + 1) * 4) - offsets.getInt(i * 4));
+            strings.add(StandardCharsets.UTF_8.decode(value).toString());
+        }
+        return strings;
+    }
+
+    private static ByteBuffer slice(ByteBuffer bytes, int offset, int length) {
+        var duplicate = bytes.duplicate();
+        duplicate.position(offset).limit(offset + length);
+        return duplicate.slice();
+    }
+
+    private static boolean valid(ByteBuffer validity, int row) {
+        return validity.limit() == 0 || (validity.get(row >>> 3) & (1 << (row & 7))) != 0;
+    }
+
+    private static void readBatch(ByteBuffer bytes, long[] block, Table message, Table batch
+            , Map<Long, List<String>> dictionaries, List<String> ids, List<String> names
+            , List<Double> medians, List<List<Double>> tops) {
+        int length = (int) batch.getLong(0);
+        var nodes = batch.structs(1, 16);
+
+        assertEquals(block[2], message.getLong(3));
+        assertEquals(5, nodes.size());
+        assertEquals(10, batch.structs(2, 16).size());
+
+        ByteBuffer idIndices = buffer(bytes, block, batch, 1);
+        ByteBuffer nameValidity = buffer(bytes, block, batch, 2);
+        ByteBuffer nameIndices = buffer(bytes, block, batch, 3);
+        ByteBuffer medianValues = buffer(bytes, block, batch, 5);
+        ByteBuffer topValidity = buffer(bytes, block, batch, 6);
+        ByteBuffer topOffsets = buffer(bytes, block, batch, 7);
+        ByteBuffer topValues = buffer(bytes, block, batch, 9);
+
+        for (int row = 0; row < length; row++) {
+            ids.add(dictionaries.get(0L).get(idIndices.getInt(row * 4)));
+            names.add(valid(nameValidity, row) ? dictionaries.get(1L).get(nameIndices.getInt(row * 4)) : null);
+            medians.add(medianValues.getDouble(row * 8));
+
+            if (valid(topValidity, row)) {
+                var top = new ArrayList<Double>();
+                for (int k = topOffsets.getInt(row * 4); k < topOffsets.getInt(row * 4 + 4); k++)
+                    top.add(topValues.getDouble(k * 8));
+                tops.add(top);
+            } else {
+                tops.add(null);
+            }
+        }
+    }
+
+    // read side of the flatbuffer tables, little endian, offsets relative to their position
+    private static class Table {
+        private final ByteBuffer bytes;
+        private final int position;
+
+        private Table(ByteBuffer bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        private static Table root(ByteBuffer bytes) {
+            bytes.order(ByteOrder.LITTLE_ENDIAN);
+            return new Table(bytes, bytes.getInt(0));
+        }
+
+        private int field(int id) {
+            int vtable = position - bytes.getInt(position);
+            int vtableSize = bytes.getShort(vtable);
+            return 4 + id * 2 < vtableSize ? bytes.getShort(vtable + 4 + id * 2) : 0;
+        }
+
+        private long getLong(int id) {
+            return field(id) == 0 ? 0 : bytes.getLong(position + field(id));
+        }
+
+        private int getInt(int id) {
+            return field(id) == 0 ? 0 : bytes.getInt(position + field(id));
+        }
+
+        private short getShort(int id) {
+            return field(id) == 0 ? 0 : bytes.getShort(position + field(id));
+        }
+
+        private byte getByte(int id) {
+            return field(id) == 0 ? 0 : bytes.get(position + field(id));
+        }
+
+        private int indirect(int id) {
+            int at = position + field(id);
+            return at + bytes.getInt(at);
+        }
+
+        private Table table(int id) {
+            return field(id) == 0 ? null : new Table(bytes, indirect(id));
+        }
+
+        private String string(int id) {
+            int at = indirect(id);
+            return StandardCharsets.UTF_8.decode(slice(bytes, at + 4, bytes.getInt(at))).toString();
+        }
+
+        private List<Table> tables(int id) {
+            int at = indirect(id);
+            var tables = new ArrayList<Table>();
+            for (int i = 0; i < bytes.getInt(at); i++) {
+                int element = at + 4 + i * 4;
+                tables.add(new Table(bytes, element + bytes.getInt(element)));
+            }
+            return tables;
+        }
+
+        // vector of structs as arrays of longs; ints of a struct are read as the long they share
+        private List<long[]> structs(int id, int size) {
+            int at = indirect(id);
+            assertEquals(0, (at + 4) % 8, "structs are 8 byte aligned");
+
+            var structs = new ArrayList<long[]>();
+            for (int i = 0; i < bytes.getInt(at); i++) {
+                int element = at + 4 + i * size;
+                long[] struct = new long[size / 8];
+                for (int k = 0; k < struct.length; k++)
+                    struct[k] = bytes.getLong(element + k * 8);
+                structs.add(struct);
+            }
+            return structs;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package TargetDiseaseScore.io;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackgroundInflaterInputStreamUnitTest {
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Test decompressing data spanning many blocks")
+    public void testInflate() throws IOException {
+        byte[] data = new byte[1_000_003];
+        new Random(1).nextBytes(data);
+
+        try (var in = new BackgroundInflaterInputStream(new ByteArrayInputStream(gzip(data)))) {
+            assertArrayEquals(data, in.readAllBytes());
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    @DisplayName("Test corrupted data fails the reader")
+    public void testCorrupted() throws IOException {
+        byte[] compressed = gzip(new byte[100_000]);
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+
+        try (var in = new BackgroundInflaterInputStream(new ByteArrayInputStream(truncated))) {
+            assertThrows(IOException.class, in::readAllBytes);
+        }
+    }
+
+    @Test
+    @DisplayName("Test an unchecked failure of the inflater fails the reader instead of blocking it")
+    public void testUncheckedFailure() throws IOException {
+        byte[] compressed = gzip(new byte[100_000]);
+
+        // the source breaks with a runtime exception halfway through
+        var broken = new ByteArrayInputStream(compressed) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos > compressed.length / 2)
+                    throw new IllegalStateException("broken source");
+                return super.read(b, off, Math.min(len, 64));
+            }
+        };
+
+        try (var in = new BackgroundInflaterInputStream(broken)) {
+            var ex = assertTimeoutPreemptively(Duration.ofSeconds(10)
+                    , () -> assertThrows(IOException.class, in::readAllBytes));
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    @DisplayName("Test more open streams than inflater threads are all read")
+    public void testManyStreams() throws IOException {
+        byte[] data = new byte[300_000];
+        new Random(2).nextBytes(data);
+        byte[] compressed = gzip(data);
+
+        int numberOfStreams = 2 * Runtime.getRuntime().availableProcessors() + 1;
+        List<BackgroundInflaterInputStream> streams = new ArrayList<>();
+        try {
+            for (int i = 0; i < numberOfStreams; i++)
+                streams.add(new BackgroundInflaterInputStream(new ByteArrayInputStream(compressed)));
+
+            // read in order, later streams wait for threads of the finished ones
+            for (var in : streams) {
+                assertArrayEquals(data, assertTimeoutPreemptively(Duration.ofSeconds(10), in::readAllBytes));
+                in.close();
+            }
+        } finally {
+            for (var in : streams)
+                in.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Test closing an unread stream closes the compressed source")
+    public void testCloseUnread() throws IOException {
+        var closed = new AtomicBoolean();
+        var source = new ByteArrayInputStream(gzip(new byte[10])) {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+
+        var in = new BackgroundInflaterInputStream(source);
+        in.close();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (!closed.get())
+                Thread.sleep(1);
+        });
+    }
+}
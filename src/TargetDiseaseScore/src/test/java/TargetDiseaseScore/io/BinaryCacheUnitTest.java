@@ -0,0 +1,137 @@
+package TargetDiseaseScore.io;
+
+import TargetDiseaseScore.data.EvidenceAccumulator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryCacheUnitTest {
+
+    @TempDir
+    Path dataDir;
+
+    private static void add(EvidenceAccumulator accumulator, String target, String disease, double score) {
+        accumulator.add(accumulator.getTargets().add(target), accumulator.getDiseases().add(disease), score);
+    }
+
+    @Test
+    @DisplayName("Test evidence cache round trip")
+    public void testEvidenceRoundTrip() throws IOException {
+        var evidence = new EvidenceAccumulator();
+        add(evidence, "ENSG1", "EFO_1", 0.5);
+        add(evidence, "ENSG1", "EFO_1", 0.25);
+        add(evidence, "ENSG2", "MONDO_é1", 1.0);
+
+        Path cacheFile = BinaryCache.cacheFile(dataDir, "evidence");
+        assertTrue(BinaryCache.writeEvidence(cacheFile, "fingerprint", evidence));
+
+        var cached = BinaryCache.readEvidence(cacheFile, "fingerprint", Integer.MAX_VALUE, 0).orElseThrow();
+
+        assertAll("Test restored evidence"
+                , () -> assertEquals(2, cached.size())
+                , () -> assertEquals("ENSG1", cached.getTargetId(0))
+                , () -> assertEquals("MONDO_é1", cached.getDiseaseId(1))
+                , () -> assertArrayEquals(new double[]{0.5, 0.25}
+                        , Arrays.copyOf(cached.getScores(0), cached.getCount(0)))
+                , () -> assertTrue(BinaryCache.readEvidence
+                        (cacheFile, "changed", Integer.MAX_VALUE, 0).isEmpty()));
+    }
+
+    @Test
+    @DisplayName("Test a truncated or corrupt evidence cache fails with an IOException only")
+    public void testCorruptEvidence() throws IOException {
+        var evidence = new EvidenceAccumulator();
+        add(evidence, "ENSG1", "EFO_1", 0.5);
+        add(evidence, "ENSG1", "EFO_1", 0.25);
+        add(evidence, "ENSG2", "EFO_2", 1.0);
+
+        Path cacheFile = BinaryCache.cacheFile(dataDir, "evidence");
+        assertTrue(BinaryCache.writeEvidence(cacheFile, "fingerprint", evidence));
+        byte[] bytes = Files.readAllBytes(cacheFile);
+
+        // magic, version and the fingerprint string come first
+        int header = 3 * Integer.BYTES + "fingerprint".length();
+
+        for (int length = header; length < bytes.length; length++) {
+            Files.write(cacheFile, Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> BinaryCache
+                    .readEvidence(cacheFile, "fingerprint", Integer.MAX_VALUE, 0), "truncated to " + length);
+        }
+
+        // any corrupted byte either still reads or is reported as an unreadable cache
+        for (int position = header; position < bytes.length; position++) {
+            byte[] corrupt = bytes.clone();
+            corrupt[position] = (byte) 0xFF;
+            Files.write(cacheFile, corrupt);
+            try {
+                BinaryCache.readEvidence(cacheFile, "fingerprint", Integer.MAX_VALUE, 0);
+            } catch (IOException expected) {
+                // a cache miss for the caller
+            }
+        }
+
+        Files.write(cacheFile, Arrays.copyOf(bytes, bytes.length + 1));
+        assertThrows(IOException.class, () -> BinaryCache
+                .readEvidence(cacheFile, "fingerprint", Integer.MAX_VALUE, 0));
+    }
+
+    @Test
+    @DisplayName("Test evidence cache is not written for approximate associations")
+    public void testEvidenceNotExact() throws IOException {
+        var evidence = new EvidenceAccumulator(1, 3);
+        add(evidence, "ENSG1", "EFO_1", 0.5);
+        add(evidence, "ENSG1", "EFO_1", 0.25);
+
+        Path cacheFile = BinaryCache.cacheFile(dataDir, "evidence");
+
+        assertAll("Test that no cache file is created"
+                , () -> assertFalse(BinaryCache.writeEvidence(cacheFile, "fingerprint", evidence))
+                , () -> assertFalse(Files.exists(cacheFile)));
+    }
+
+    @Test
+    @DisplayName("Test string columns cache round trip and fingerprint changes")
+    public void testColumnsRoundTrip() throws IOException {
+        Path input = Files.writeString(dataDir.resolve("t.json"), "{}\n");
+        String fingerprint = BinaryCache.fingerprint(dataDir, p -> p.toString().endsWith(".json"));
+
+        Path cacheFile = BinaryCache.cacheFile(dataDir, "target");
+        BinaryCache.writeColumns(cacheFile, fingerprint
+                , List.of(new String[]{"1", "2"}, new String[]{"AAA", null}));
+
+        var columns = BinaryCache.readColumns(cacheFile, fingerprint).orElseThrow();
+
+        // touching the input invalidates the cache
+        Files.writeString(input, "{}\n{}\n");
+        String changed = BinaryCache.fingerprint(dataDir, p -> p.toString().endsWith(".json"));
+
+        assertAll("Test restored columns"
+                , () -> assertArrayEquals(new String[]{"1", "2"}, columns.get(0))
+                , () -> assertArrayEquals(new String[]{"AAA", null}, columns.get(1))
+                , () -> assertNotEquals(fingerprint, changed)
+                , () -> assertTrue(BinaryCache.readColumns(cacheFile, changed).isEmpty()));
+    }
+
+    @Test
+    @DisplayName("Test a failed cache write leaves no temporary file")
+    public void testFailedWriteCleansUp() throws IOException {
+        // a non-empty directory in place of the cache file makes the move fail
+        Path cacheFile = BinaryCache.cacheFile(dataDir, "target");
+        Files.createDirectories(cacheFile.resolve("blocker"));
+
+        assertThrows(IOException.class, () -> BinaryCache.writeColumns(cacheFile, "fingerprint"
+                , List.of(new String[]{"1"}, new String[]{"AAA"})));
+
+        try (var files = Files.list(cacheFile.getParent())) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+}
@@ -1,17 +1,25 @@
 package TargetDiseaseScore.io;
 
+import TargetDiseaseScore.data.IdDictionary;
 import TargetDiseaseScore.dto.Target;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -59,20 +67,190 @@ public class JsonIOUnitTest {
             throw new RuntimeException(e);
         }
     }
-}
 
+    @Test
+    @DisplayName("Test parallel json lines writing against sequential writing")
+    public void testParallelWriting() throws IOException {
+        JsonIO jsonIO = new JsonIO();
+
+        // several windows of chunks, non-ASCII and escaped characters
+        var targets = IntStream.range(0, 100_000)
+                .mapToObj(i -> new Target("ENSG" + i, i % 7 == 0 ? "Ä\"β" + i : null))
+                .collect(Collectors.toList());
+
+        Path sequentialFile = dataDir.resolve("sequential.json");
+        try (var writer = Files.newBufferedWriter(sequentialFile)) {
+            jsonIO.ObjToJson(targets, writer);
+        }
+
+        Path parallelFile = dataDir.resolve("parallel.json");
+        Files.writeString(parallelFile, "longer stale content ".repeat(1 << 16));
+        jsonIO.ObjToJsonFile(targets, parallelFile);
+
+        Path emptyFile = dataDir.resolve("empty.json");
+        jsonIO.ObjToJsonFile(List.of(), emptyFile);
+
+        byte[] parallelBytes = Files.readAllBytes(parallelFile);
+
+        assertAll("Test parallel written lines"
+                , () -> assertArrayEquals(Files.readAllBytes(sequentialFile), parallelBytes)
+                , () -> assertEquals(targets.size(), IntStream.range(0, parallelBytes.length)
+                        .filter(i -> parallelBytes[i] == '\n').count())
+                , () -> assertEquals('\n', parallelBytes[parallelBytes.length - 1])
+                , () -> assertTrue(IntStream.range(0, parallelBytes.length).noneMatch(i -> parallelBytes[i] == '\r'))
+                , () -> assertEquals(0, Files.size(emptyFile)));
+    }
+
+    @Test
+    @DisplayName("Test writing compressed json partitions")
+    public void testPartitionWriting() throws IOException {
+        JsonIO jsonIO = new JsonIO();
+
+        var targets = IntStream.range(0, 10_000)
+                .mapToObj(i -> new Target("ENSG" + i % 997, "S" + i))
+                .collect(Collectors.toList());
+        var expected = targets.stream()
+                .map(t -> "{\"id\":\"" + t.getId() + "\",\"approvedSymbol\":\"" + t.getApprovedSymbol() + "\"}")
+                .collect(Collectors.toList());
+
+        Path directory = dataDir.resolve("parts");
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("part-00009.json.gz"), "stale");
+
+        var rangeParts = jsonIO.ObjToJsonPartitions(targets, directory, 3, null);
+        var rangeLines = new ArrayList<String>();
+        for (Path part : rangeParts)
+            rangeLines.addAll(readGzipLines(part));
+        var firstRangePart = readGzipLines(rangeParts.get(0));
+
+        var hashParts = jsonIO.ObjToJsonPartitions(targets, directory, 4, Target::getId);
+        var hashLines = new ArrayList<List<String>>();
+        for (Path part : hashParts)
+            hashLines.add(readGzipLines(part));
+
+        try (var files = Files.list(directory)) {
+            var names = files.map(f -> f.getFileName().toString()).sorted().collect(Collectors.toList());
+
+            assertAll("Test partitions"
+                    , () -> assertEquals(expected, rangeLines)
+                    , () -> assertEquals(3333, firstRangePart.size())
+                    , () -> assertEquals(List.of("part-00000.json.gz", "part-00001.json.gz"
+                            , "part-00002.json.gz", "part-00003.json.gz"), names)
+                    , () -> assertEquals(expected.size(), hashLines.stream().mapToInt(List::size).sum())
+                    , () -> {
+                        // every id in exactly one partition, rows in list order
+                        for (int p = 0; p < hashLines.size(); p++) {
+                            int partition = p;
+                            var rows = expected.stream()
+                                    .filter(line -> Math.floorMod(line.substring(7, line.indexOf('"', 7))
+                                            .hashCode(), 4) == partition)
+                                    .collect(Collectors.toList());
+                            assertEquals(rows, hashLines.get(p));
+                        }
+                    });
+        }
+    }
+
+    private static List<String> readGzipLines(Path file) throws IOException {
+        try (var reader = new BufferedReader(new InputStreamReader
+                (new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
 
+    @Test
+    @DisplayName("Test JsonIO streaming evidence reading")
+    public void testReadingEvidence() {
+        JsonIO jsonIO = new JsonIO();
 
+        String json = "{\"datasourceId\":\"eva\",\"targetId\":\"1\",\"diseaseId\":\"A\",\"score\":0.5}\n"
+                + "{\"score\":0.25,\"variantRsId\":\"rs1\",\"clinicalSignificances\":[\"pathogenic\"]"
+                + ",\"nested\":{\"targetId\":\"X\"},\"diseaseId\":\"B\",\"targetId\":\"2\"}\n";
 
+        var targets = new IdDictionary();
+        var diseases = new IdDictionary();
+        var evidence = new ArrayList<String>();
+        jsonIO.readEvidence(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), targets, diseases
+                , (t, d, score) -> evidence.add(targets.get(t) + ":" + diseases.get(d) + ":" + score));
 
+        assertAll("Test that only top level ids are picked up"
+                , () -> assertEquals(List.of("1:A:0.5", "2:B:0.25"), evidence)
+                , () -> assertEquals(2, targets.size())
+                , () -> assertEquals(-1, targets.indexOf("X")));
+    }
 
+    @Test
+    @DisplayName("Test JsonIO streaming evidence reading with a structured score")
+    public void testReadingEvidenceStructuredScore() {
+        JsonIO jsonIO = new JsonIO();
 
+        String json = "{\"targetId\":\"1\",\"score\":{\"targetId\":\"X\",\"score\":9.0},\"diseaseId\":\"A\"}\n"
+                + "{\"targetId\":\"2\",\"diseaseId\":\"B\",\"score\":0.5}\n";
 
+        var targets = new IdDictionary();
+        var diseases = new IdDictionary();
+        var evidence = new ArrayList<String>();
+        jsonIO.readEvidence(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), targets, diseases
+                , (t, d, score) -> evidence.add(targets.get(t) + ":" + diseases.get(d) + ":" + score));
 
+        assertAll("Test that the parser stays on the top level"
+                , () -> assertEquals(List.of("1:A:0.0", "2:B:0.5"), evidence)
+                , () -> assertEquals(-1, targets.indexOf("X")));
+    }
 
+    @Test
+    @DisplayName("Test JsonIO streaming evidence reading with missing ids")
+    public void testReadingEvidenceMissingIds() {
+        JsonIO jsonIO = new JsonIO();
 
+        String json = "{\"targetId\":\"1\",\"score\":0.5}\n";
 
+        assertThrows(RuntimeException.class, () -> jsonIO.readEvidence
+                (new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))
+                        , new IdDictionary(), new IdDictionary(), (t, d, s) -> {}));
+    }
 
+    @Test
+    @DisplayName("Test JsonIO projection reading restricted to known keys")
+    public void testReadingProjection() {
+        JsonIO jsonIO = new JsonIO();
+
+        String json = "{\"id\":\"1\",\"approvedSymbol\":\"AAA\",\"synonyms\":[{\"label\":\"A\"}]}\n"
+                + "{\"approvedSymbol\":\"BBB\",\"id\":\"2\"}\n"
+                + "{\"id\":\"3\",\"approvedSymbol\":\"CCC\"}\n"
+                + "{\"id\":\"4\"}\n";
+
+        var needed = new IdDictionary();
+        needed.add("2");
+        needed.add("3");
+        needed.add("4");
+
+        var restricted = new ArrayList<String>();
+        jsonIO.readProjection(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))
+                , "id", "approvedSymbol", needed, (key, value) -> restricted.add(key + ":" + value));
+
+        var all = new ArrayList<String>();
+        jsonIO.readProjection(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))
+                , "id", "approvedSymbol", null, (key, value) -> all.add(key + ":" + value));
+
+        assertAll("Test projections"
+                , () -> assertEquals(List.of("2:BBB", "3:CCC", "4:null"), restricted)
+                , () -> assertEquals(List.of("1:AAA", "2:BBB", "3:CCC", "4:null"), all));
+    }
+
+    @Test
+    @DisplayName("Test JsonIO projection reading with a structured value")
+    public void testReadingProjectionStructuredValue() {
+        JsonIO jsonIO = new JsonIO();
 
+        String json = "{\"id\":\"1\",\"name\":{\"id\":\"X\",\"name\":\"nested\"},\"description\":\"d\"}\n"
+                + "{\"name\":[\"a\",{\"name\":\"b\"}],\"id\":\"2\"}\n"
+                + "{\"id\":\"3\",\"name\":\"Disease Three\"}\n";
 
+        var projections = new ArrayList<String>();
+        jsonIO.readProjection(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))
+                , "id", "name", null, (key, value) -> projections.add(key + ":" + value));
 
+        assertEquals(List.of("1:null", "2:null", "3:Disease Three"), projections);
+    }
+}
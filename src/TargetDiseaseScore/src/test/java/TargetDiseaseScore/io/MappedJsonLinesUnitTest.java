@@ -0,0 +1,57 @@
+package TargetDiseaseScore.io;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedJsonLinesUnitTest {
+
+    @TempDir
+    static Path dataDir;
+
+    @Test
+    @DisplayName("Test splitting a json-lines file into newline aligned chunks")
+    public void testSplit() throws IOException {
+        Path file = dataDir.resolve("lines.json");
+        List<String> lines = IntStream.range(0, 1000)
+                .mapToObj(i -> "{\"id\":\"" + "x".repeat(i % 37) + i + "\"}")
+                .collect(Collectors.toList());
+        Files.write(file, lines);
+
+        var chunks = MappedJsonLines.split(file, 7, 1);
+
+        List<String> restored = new ArrayList<>();
+        for (var chunk : chunks) {
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            String text = new String(bytes, StandardCharsets.UTF_8);
+
+            assertTrue(text.endsWith("\n"), () -> "Chunks should end at a line end");
+            restored.addAll(List.of(text.split("\n")));
+        }
+
+        assertAll("Test that chunks cover the file"
+                , () -> assertTrue(chunks.size() > 1 && chunks.size() <= 7)
+                , () -> assertEquals(lines, restored)
+                , () -> assertEquals(1, MappedJsonLines.split(file, 7).size()));
+    }
+
+    @Test
+    @DisplayName("Test splitting an empty file")
+    public void testSplitEmpty() throws IOException {
+        Path file = Files.createFile(dataDir.resolve("empty.json"));
+
+        assertTrue(MappedJsonLines.split(file, 4).isEmpty());
+    }
+}
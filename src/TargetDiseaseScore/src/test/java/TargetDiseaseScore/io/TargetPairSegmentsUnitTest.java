@@ -0,0 +1,64 @@
+package TargetDiseaseScore.io;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TargetPairSegmentsUnitTest {
+
+    @TempDir
+    static Path dataDir;
+
+    @Test
+    @DisplayName("Test writing target pairs into segment files")
+    public void testSegments() throws IOException {
+        Path directory = dataDir.resolve("pairs");
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("segment-00007.json"), "stale");
+        Files.writeString(directory.resolve("other.json"), "kept");
+
+        List<Path> files;
+        try (var segments = new TargetPairSegments(directory)) {
+            var first = segments.newSegment();
+            var second = segments.newSegment();
+
+            first.accept("T1", "T2", new String[] {"D1", "D2"}, 2);
+            first.accept("T1", "T3", new String[] {"D\"3"}, 0.25);
+            second.accept("T2", "T3", new String[0], 0);
+
+            files = segments.getSegments();
+        }
+
+        var jsonIO = new JsonIO();
+        var lines = new ArrayList<String>();
+        for (Path file : files)
+            lines.addAll(Files.readAllLines(file));
+
+        assertAll("Test segment content"
+                , () -> assertEquals(2, files.size())
+                , () -> assertFalse(Files.exists(directory.resolve("segment-00007.json")))
+                , () -> assertTrue(Files.exists(directory.resolve("other.json")))
+                , () -> assertEquals(3, lines.size())
+                , () -> assertEquals("{\"targetIdA\":\"T1\",\"targetIdB\":\"T2\",\"diseasesShared\":[\"D1\",\"D2\"],\"similarity\":2.0}"
+                        , lines.get(0))
+                , () -> assertEquals(Set.of("D\"3"), jsonIO.stringToObj(lines.get(1), PairLine.class).diseasesShared)
+                , () -> assertEquals("{\"targetIdA\":\"T2\",\"targetIdB\":\"T3\",\"diseasesShared\":[],\"similarity\":0.0}"
+                        , lines.get(2)));
+    }
+
+    public static class PairLine {
+        public String targetIdA;
+        public String targetIdB;
+        public Set<String> diseasesShared;
+        public double similarity;
+    }
+}
@@ -0,0 +1,105 @@
+package TargetDiseaseScore.search;
+
+import TargetDiseaseScore.dto.TDComposite;
+import TargetDiseaseScore.dto.TargetOverlapPair;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MinHashSearchUnitTest {
+
+    // groups of targets drawing most of their diseases from a shared pool, plus background noise
+    private static List<TDComposite> clusteredAssociations(long seed) {
+        var random = new Random(seed);
+        var list = new ArrayList<TDComposite>();
+        for (int group = 0; group < 20; group++) {
+            for (int member = 0; member < 5; member++) {
+                String target = "T" + group + "-" + member;
+                for (int disease = 0; disease < 20; disease++) {
+                    if (random.nextDouble() < 0.9)
+                        list.add(new TDComposite(target, "G" + group + "-" + disease, 0, List.of()));
+                }
+                for (int noise = 0; noise < 3; noise++)
+                    list.add(new TDComposite(target, "N" + random.nextInt(5000), 0, List.of()));
+            }
+        }
+        return list;
+    }
+
+    private static Set<Set<String>> asSet(List<TargetOverlapPair> pairs) {
+        return pairs.stream()
+                .map(p -> Set.of(p.getTargetIdA(), p.getTargetIdB()))
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    @DisplayName("Test oversized LSH buckets are skipped")
+    public void testBucketCap() {
+        // 50 targets with the same two diseases share every band
+        var list = new ArrayList<TDComposite>();
+        for (int target = 0; target < 50; target++) {
+            list.add(new TDComposite("T" + target, "D1", 0, List.of()));
+            list.add(new TDComposite("T" + target, "D2", 0, List.of()));
+        }
+        var index = OverlapIndex.of(list);
+
+        assertAll("Test bucket cap"
+                , () -> assertEquals(50 * 49 / 2, new MinHashSearch(index, 4, 2).countPairs(2, true))
+                , () -> assertEquals(50 * 49 / 2, new MinHashSearch(index, 4, 2, 50).countPairs(2, true))
+                , () -> assertEquals(0, new MinHashSearch(index, 4, 2, 49).countPairs(2, true)));
+    }
+
+    @Test
+    @DisplayName("Test LSH candidates against the exact search")
+    public void testAgainstExactSearch() {
+        var index = OverlapIndex.of(clusteredAssociations(17));
+        var exact = new TargetOverlapSearch(index).findPairs(10);
+
+        var search = new MinHashSearch(index, 20, 4);
+        var approximate = search.findPairs(10);
+
+        assertAll("Test approximate pairs"
+                // 20 groups of 5 targets
+                , () -> assertEquals(200, exact.size())
+                // verified pairs are always exact pairs
+                , () -> assertTrue(asSet(exact).containsAll(asSet(approximate)))
+                // similarity of about 0.8 is far above the threshold of 20 x 4
+                , () -> assertTrue(approximate.size() >= 190, "recall " + approximate.size())
+                , () -> assertEquals(approximate.size(), search.countPairs(10, true))
+                , () -> assertEquals(approximate.size(), search.countPairs(10, false), 10)
+                , () -> assertEquals(approximate.stream().filter(p -> p.getDiseasesShared().size() >= 10).count()
+                        , approximate.size()));
+    }
+
+    @Test
+    @DisplayName("Test Jaccard estimate and LSH probabilities")
+    public void testEstimates() {
+        var index = OverlapIndex.of(List.of(
+                new TDComposite("A", "1", 0, List.of())
+                , new TDComposite("A", "2", 0, List.of())
+                , new TDComposite("A", "3", 0, List.of())
+                , new TDComposite("B", "2", 0, List.of())
+                , new TDComposite("B", "3", 0, List.of())
+                , new TDComposite("B", "4", 0, List.of())));
+        var search = new MinHashSearch(index, 100, 4);
+        int a = index.getTargets().indexOf("A");
+        int b = index.getTargets().indexOf("B");
+
+        assertAll("Test estimates"
+                // exact Jaccard is 2 / 4
+                , () -> assertEquals(0.5, search.estimatedJaccard(a, b), 0.1)
+                , () -> assertEquals(1.0, search.estimatedJaccard(a, a))
+                , () -> assertEquals(Math.pow(1.0 / 20, 1.0 / 5), MinHashSearch.threshold(20, 5), 1e-12)
+                , () -> assertEquals(0.6, MinHashSearch.candidateProbability(MinHashSearch.threshold(20, 5), 20, 5), 0.1)
+                , () -> assertTrue(MinHashSearch.candidateProbability(0.3, 20, 5) < 0.05)
+                , () -> assertTrue(MinHashSearch.candidateProbability(0.8, 20, 5) > 0.99)
+                , () -> assertThrows(IllegalArgumentException.class, () -> new MinHashSearch(index, 0, 4)));
+    }
+}
@@ -0,0 +1,82 @@
+package TargetDiseaseScore.search;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Rough comparison of the disease set intersection of the pair search: string sets probed
+ * with contains, a plain branching merge and the {@link SortedIntersection} kernel.
+ * Not a test, run the main method from the test classpath, e.g.
+ * java -cp target/classes:target/test-classes TargetDiseaseScore.search.SortedIntersectionBenchmark
+ */
+public class SortedIntersectionBenchmark {
+
+    public static void main(String... args) {
+        var random = new Random(42);
+
+        for (int[] sizes : new int[][] {{20, 20}, {200, 200}, {2000, 2000}, {20, 2000}}) {
+            int pairs = 2_000_000 / (sizes[0] + sizes[1]);
+            int[][] listsA = new int[pairs][];
+            int[][] listsB = new int[pairs][];
+            Set<?>[] setsA = new Set<?>[pairs];
+            Set<?>[] setsB = new Set<?>[pairs];
+
+            for (int p = 0; p < pairs; p++) {
+                listsA[p] = random.ints(0, 20_000).distinct().limit(sizes[0]).sorted().toArray();
+                listsB[p] = random.ints(0, 20_000).distinct().limit(sizes[1]).sorted().toArray();
+                setsA[p] = Arrays.stream(listsA[p]).mapToObj(d -> "EFO_" + d).collect(Collectors.toSet());
+                setsB[p] = Arrays.stream(listsB[p]).mapToObj(d -> "EFO_" + d).collect(Collectors.toSet());
+            }
+
+            System.out.format("%d x %d diseases, %d pairs%n", sizes[0], sizes[1], pairs);
+
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                long sets = 0;
+                for (int p = 0; p < pairs; p++) {
+                    Set<?> other = setsB[p];
+                    sets += setsA[p].stream().filter(other::contains).count();
+                }
+                long setTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                long merged = 0;
+                for (int p = 0; p < pairs; p++)
+                    merged += branchingMerge(listsA[p], listsB[p]);
+                long mergeTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                long kernel = 0;
+                for (int p = 0; p < pairs; p++)
+                    kernel += SortedIntersection.count(listsA[p], 0, listsA[p].length, listsB[p], 0, listsB[p].length);
+                long kernelTime = System.nanoTime() - start;
+
+                if (sets != merged || merged != kernel)
+                    throw new IllegalStateException("Intersections differ: " + sets + " " + merged + " " + kernel);
+
+                System.out.format("\tSet.contains: %8.1f ns/pair  branching merge: %8.1f ns/pair  kernel: %8.1f ns/pair%n"
+                        , (double) setTime / pairs, (double) mergeTime / pairs, (double) kernelTime / pairs);
+            }
+        }
+    }
+
+    private static int branchingMerge(int[] a, int[] b) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+}
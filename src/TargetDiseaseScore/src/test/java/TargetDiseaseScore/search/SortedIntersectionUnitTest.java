@@ -0,0 +1,50 @@
+package TargetDiseaseScore.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedIntersectionUnitTest {
+
+    private static int[] sortedDistinct(Random random, int size, int range) {
+        return random.ints(0, range).distinct().limit(size).sorted().toArray();
+    }
+
+    @ParameterizedTest(name = "sizes {0} and {1} out of {2}")
+    @CsvSource({
+            "0, 10, 100",
+            "50, 60, 100",
+            "500, 500, 100000",
+            // galloping through the longer list
+            "5, 3000, 10000",
+            "3000, 7, 10000"})
+    @DisplayName("Test count and intersect against a set based intersection")
+    public void testIntersection(int sizeA, int sizeB, int range) {
+        var random = new Random(sizeA * 31L + sizeB);
+
+        for (int round = 0; round < 20; round++) {
+            // slices in the middle of bigger arrays
+            int[] a = sortedDistinct(random, sizeA, range);
+            int[] b = sortedDistinct(random, sizeB, range);
+            int[] paddedA = IntStream.concat(IntStream.of(-1, -2), Arrays.stream(a)).toArray();
+            int[] paddedB = IntStream.concat(Arrays.stream(b), IntStream.of(-1)).toArray();
+
+            int[] expected = Arrays.stream(a).filter(x -> Arrays.binarySearch(b, x) >= 0).toArray();
+            int[] out = new int[Math.min(sizeA, sizeB)];
+
+            int count = SortedIntersection.count(paddedA, 2, 2 + sizeA, paddedB, 0, sizeB);
+            int size = SortedIntersection.intersect(paddedA, 2, 2 + sizeA, paddedB, 0, sizeB, out);
+
+            assertAll("Test intersection"
+                    , () -> assertEquals(expected.length, count)
+                    , () -> assertEquals(expected.length, size)
+                    , () -> assertArrayEquals(expected, Arrays.copyOf(out, size)));
+        }
+    }
+}
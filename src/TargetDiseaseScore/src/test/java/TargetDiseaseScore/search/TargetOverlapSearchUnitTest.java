@@ -0,0 +1,315 @@
+package TargetDiseaseScore.search;
+
+import TargetDiseaseScore.dto.TDComposite;
+import TargetDiseaseScore.dto.TargetDiseaseSet;
+import TargetDiseaseScore.dto.TargetOverlapPair;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TargetOverlapSearchUnitTest {
+
+    private static List<TDComposite> randomAssociations(int targets, int diseases, int associations, long seed) {
+        var random = new Random(seed);
+        var list = new ArrayList<TDComposite>();
+        for (int i = 0; i < associations; i++) {
+            list.add(new TDComposite("T" + random.nextInt(targets), "D" + random.nextInt(diseases)
+                    , random.nextDouble(), List.of()));
+        }
+        return list;
+    }
+
+    // plain all-pairs reference, unordered pair -> shared diseases
+    private static Map<Set<String>, Set<String>> bruteForce(List<TDComposite> associations, int minShared) {
+        var diseasesOf = associations.stream()
+                .collect(Collectors.groupingBy(TDComposite::getTargetId
+                        , Collectors.mapping(TDComposite::getDiseaseId, Collectors.toSet())));
+        var targets = new ArrayList<>(diseasesOf.keySet());
+
+        var pairs = new HashMap<Set<String>, Set<String>>();
+        for (int a = 0; a < targets.size(); a++) {
+            for (int b = a + 1; b < targets.size(); b++) {
+                var shared = new HashSet<>(diseasesOf.get(targets.get(a)));
+                shared.retainAll(diseasesOf.get(targets.get(b)));
+                if (shared.size() >= minShared)
+                    pairs.put(Set.of(targets.get(a), targets.get(b)), shared);
+            }
+        }
+        return pairs;
+    }
+
+    private static Map<Set<String>, Set<String>> asMap(List<TargetOverlapPair> pairs) {
+        return pairs.stream().collect(Collectors.toMap
+                (p -> Set.of(p.getTargetIdA(), p.getTargetIdB()), TargetOverlapPair::getDiseasesShared));
+    }
+
+    @Test
+    @DisplayName("Test the forward and inverted indices")
+    public void testOverlapIndex() {
+        var index = OverlapIndex.of(List.of(
+                new TDComposite("B", "1", 0, List.of())
+                , new TDComposite("B", "2", 0, List.of())
+                , new TDComposite("A", "2", 0, List.of())
+                , new TDComposite("B", "1", 0, List.of())));
+
+        int a = index.getTargets().indexOf("A");
+        int b = index.getTargets().indexOf("B");
+        int disease2 = index.getDiseases().indexOf("2");
+
+        assertAll("Test index content"
+                , () -> assertEquals(2, index.getNumberOfTargets())
+                , () -> assertEquals(2, index.getNumberOfDiseases())
+                // ordered by degree, duplicates removed
+                , () -> assertEquals(0, a)
+                , () -> assertEquals(1, index.getDegree(a))
+                , () -> assertEquals(2, index.getDegree(b))
+                , () -> assertArrayEquals(new int[] {a, b}, Arrays.copyOfRange(index.getDiseaseTargets()
+                        , index.getDiseaseOffsets()[disease2], index.getDiseaseOffsets()[disease2 + 1])));
+    }
+
+    @ParameterizedTest(name = "{0} targets, {1} diseases, {2} associations")
+    @CsvSource({
+            // dense: bitmaps for nearly all targets
+            "300, 60, 3000",
+            // sparse: inverted index only
+            "300, 5000, 3000",
+            // mixed: a few highly connected targets
+            "1000, 3000, 10000"})
+    @DisplayName("Test co-occurrence search against all-pairs comparison")
+    public void testAgainstBruteForce(int targets, int diseases, int numberOfAssociations) {
+        var associations = new ArrayList<>(randomAssociations(targets, diseases, numberOfAssociations, 7));
+        // a few highly connected targets
+        associations.addAll(randomAssociations(5, diseases, diseases, 11));
+
+        for (int minShared : new int[] {1, 2, 4}) {
+            var search = new TargetOverlapSearch(OverlapIndex.of(associations));
+            var pairs = search.findPairs(minShared);
+
+            // streamed pairs, one consumer per worker
+            var streamed = Collections.synchronizedList(new ArrayList<TargetOverlapPair>());
+            long numberStreamed = search.forEachPair(minShared, PairWeighting.SHARED
+                    , () -> (targetIdA, targetIdB, diseasesShared, similarity) ->
+                            streamed.add(new TargetOverlapPair(targetIdA, targetIdB, Set.of(diseasesShared))));
+
+            var expected = bruteForce(associations, minShared);
+            assertAll("Test pairs for min shared " + minShared
+                    , () -> assertEquals(expected, asMap(pairs))
+                    , () -> assertEquals(pairs.size(), asMap(pairs).size())
+                    , () -> assertEquals(expected, asMap(streamed))
+                    , () -> assertEquals(expected.size(), numberStreamed));
+        }
+    }
+
+    @ParameterizedTest(name = "{0} targets, {1} diseases, {2} associations")
+    @CsvSource({
+            "300, 60, 3000",
+            "300, 5000, 3000"})
+    @DisplayName("Test weighted similarities against scores looked up by IDs")
+    public void testWeightedPairs(int targets, int diseases, int numberOfAssociations) {
+        var associations = new ArrayList<>(randomAssociations(targets, diseases, numberOfAssociations, 17));
+        associations.addAll(randomAssociations(5, diseases, diseases, 19));
+
+        // the highest median of duplicate associations
+        var scores = associations.stream().collect(Collectors.toMap
+                (a -> a.getTargetId() + "|" + a.getDiseaseId(), TDComposite::getMedianScore, Math::max));
+        var diseasesOf = associations.stream()
+                .collect(Collectors.groupingBy(TDComposite::getTargetId
+                        , Collectors.mapping(TDComposite::getDiseaseId, Collectors.toSet())));
+
+        var search = new TargetOverlapSearch(OverlapIndex.of(associations));
+        var minSum = search.findPairs(2, PairWeighting.MIN_SUM);
+        var cosine = search.findPairs(2, PairWeighting.COSINE);
+
+        assertAll("Test weighted similarities"
+                , () -> assertEquals(asMap(search.findPairs(2)), asMap(minSum))
+                , () -> {
+                    for (var pair : minSum) {
+                        double expected = pair.getDiseasesShared().stream()
+                                .mapToDouble(d -> Math.min(scores.get(pair.getTargetIdA() + "|" + d)
+                                        , scores.get(pair.getTargetIdB() + "|" + d)))
+                                .sum();
+                        assertEquals(expected, pair.getSimilarity(), 1e-9, pair.toString());
+                    }
+                }
+                , () -> {
+                    for (var pair : cosine) {
+                        double dot = pair.getDiseasesShared().stream()
+                                .mapToDouble(d -> scores.get(pair.getTargetIdA() + "|" + d)
+                                        * scores.get(pair.getTargetIdB() + "|" + d))
+                                .sum();
+                        double normA = diseasesOf.get(pair.getTargetIdA()).stream()
+                                .mapToDouble(d -> Math.pow(scores.get(pair.getTargetIdA() + "|" + d), 2)).sum();
+                        double normB = diseasesOf.get(pair.getTargetIdB()).stream()
+                                .mapToDouble(d -> Math.pow(scores.get(pair.getTargetIdB() + "|" + d), 2)).sum();
+                        assertEquals(dot / Math.sqrt(normA * normB), pair.getSimilarity(), 1e-9, pair.toString());
+                    }
+                });
+    }
+
+    @ParameterizedTest(name = "{0} targets, {1} diseases, {2} associations")
+    @CsvSource({
+            "300, 60, 3000",
+            "300, 5000, 3000",
+            "1000, 3000, 10000"})
+    @DisplayName("Test shared diseases histogram against all-pairs comparison")
+    public void testHistogram(int targets, int diseases, int numberOfAssociations) {
+        var associations = new ArrayList<>(randomAssociations(targets, diseases, numberOfAssociations, 5));
+        associations.addAll(randomAssociations(5, diseases, diseases, 13));
+
+        var search = new TargetOverlapSearch(OverlapIndex.of(associations));
+        long[] histogram = search.histogram(1);
+        var expected = bruteForce(associations, 1);
+
+        assertAll("Test histogram for every threshold"
+                , () -> assertEquals(0, histogram[0])
+                , () -> {
+                    for (int k = 1; k < histogram.length; k++) {
+                        int shared = k;
+                        assertEquals(expected.values().stream().filter(s -> s.size() == shared).count()
+                                , histogram[k], "pairs sharing " + k);
+                    }
+                }
+                , () -> assertEquals(expected.size(), search.countPairs(1))
+                , () -> assertEquals(bruteForce(associations, 3).size(), TargetOverlapSearch.countAtLeast(histogram, 3))
+                , () -> assertEquals(bruteForce(associations, 3).size(), search.countPairs(3))
+                , () -> assertArrayEquals(Arrays.copyOfRange(histogram, 3, histogram.length)
+                        , Arrays.copyOfRange(search.histogram(3), 3, histogram.length)));
+    }
+
+    @ParameterizedTest(name = "{0} targets, {1} diseases, {2} associations")
+    @CsvSource({
+            "300, 60, 3000",
+            "300, 5000, 3000",
+            "1000, 3000, 10000"})
+    @DisplayName("Test top k pairs against all-pairs comparison")
+    public void testTopPairs(int targets, int diseases, int numberOfAssociations) {
+        var associations = new ArrayList<>(randomAssociations(targets, diseases, numberOfAssociations, 23));
+        associations.addAll(randomAssociations(5, diseases, diseases, 29));
+
+        var diseasesOf = associations.stream()
+                .collect(Collectors.groupingBy(TDComposite::getTargetId
+                        , Collectors.mapping(TDComposite::getDiseaseId, Collectors.toSet())));
+        var search = new TargetOverlapSearch(OverlapIndex.of(associations));
+
+        for (PairSimilarity similarity : PairSimilarity.values()) {
+            // every score of the pairs sharing anything, best first
+            List<Double> expected = bruteForce(associations, 1).entrySet().stream()
+                    .map(e -> {
+                        var pair = new ArrayList<>(e.getKey());
+                        int sizeA = diseasesOf.get(pair.get(0)).size();
+                        int sizeB = diseasesOf.get(pair.get(1)).size();
+                        return similarity.score(e.getValue().size(), sizeA, sizeB);
+                    })
+                    .sorted(Comparator.reverseOrder())
+                    .limit(50)
+                    .collect(Collectors.toList());
+
+            var top = search.topPairs(50, similarity);
+
+            assertAll("Test top pairs by " + similarity
+                    , () -> assertEquals(expected, top.stream()
+                            .map(TargetOverlapPair::getSimilarity).collect(Collectors.toList()))
+                    , () -> assertTrue(top.stream().allMatch(p -> p.getSimilarity() == similarity.score
+                            (p.getDiseasesShared().size(), diseasesOf.get(p.getTargetIdA()).size()
+                                    , diseasesOf.get(p.getTargetIdB()).size())))
+                    // ties are broken the same way every time
+                    , () -> assertEquals(top.stream().map(TargetOverlapPair::toString).collect(Collectors.toList())
+                            , search.topPairs(50, similarity).stream()
+                                    .map(TargetOverlapPair::toString).collect(Collectors.toList())));
+        }
+    }
+
+    @Test
+    @DisplayName("Test cost based fork/join splitting keeps every target once and in order")
+    public void testPairSearchTask() {
+        // a few very expensive targets at the end, like the most connected ones
+        int offset = 10;
+        long[] cumulativeCost = new long[1001];
+        for (int i = 0; i < 1000; i++)
+            cumulativeCost[i + 1] = cumulativeCost[i] + (i >= 990 ? 100_000 : 1);
+
+        var leaves = Collections.synchronizedList(new ArrayList<int[]>());
+        List<Integer> targets = ForkJoinPool.commonPool().invoke(new PairSearchTask<List<Integer>>
+                (cumulativeCost, offset, offset, offset + 1000, 5_000
+                        , (from, to) -> {
+                            leaves.add(new int[] {from, to});
+                            var range = new ArrayList<Integer>();
+                            for (int target = from; target < to; target++)
+                                range.add(target);
+                            return range;
+                        }
+                        , (left, right) -> {
+                            left.addAll(right);
+                            return left;
+                        }));
+
+        assertAll("Test splitting"
+                , () -> assertEquals(IntStream.range(offset, offset + 1000).boxed().collect(Collectors.toList())
+                        , targets)
+                // every expensive target gets a leaf of its own
+                , () -> assertEquals(10, leaves.stream().filter(leaf -> leaf[0] >= offset + 990).count())
+                , () -> assertTrue(leaves.size() > 10));
+    }
+
+    @Test
+    @DisplayName("Test bitmap disease sets")
+    public void testTargetDiseaseSet() {
+        int[] diseasesA = {1, 5, 64, 130, 200};
+        int[] diseasesB = {5, 64, 129, 200};
+        var setA = new TargetDiseaseSet("A", diseasesA, 0, diseasesA.length, 256);
+        var setB = new TargetDiseaseSet("B", diseasesB, 0, diseasesB.length, 256);
+
+        assertAll("Test bitmap operations"
+                , () -> assertTrue(setA.contains(130))
+                , () -> assertFalse(setA.contains(129))
+                , () -> assertEquals(5, setA.getNumberOfDiseases())
+                , () -> assertTrue(setA.sharesAtLeast(setB, 3))
+                , () -> assertFalse(setA.sharesAtLeast(setB, 4))
+                , () -> assertFalse(setA.sharesAtLeast(setB, 6))
+                , () -> assertEquals(3, setA.countShared(setB, 1))
+                , () -> assertTrue(setA.countShared(setB, 6) < 6)
+                , () -> assertArrayEquals(new int[] {5, 64, 200}, setA.shared(setB))
+                , () -> assertArrayEquals(new int[] {5, 64, 200}, setB.shared(setA)));
+    }
+
+    @Test
+    @DisplayName("Test disease pairs sharing targets over the transposed index")
+    public void testTransposedSearch() {
+        var associations = new ArrayList<>(randomAssociations(2000, 200, 8000, 31));
+
+        // the same data with the fields swapped is the reference
+        var swapped = associations.stream()
+                .map(a -> new TDComposite(a.getDiseaseId(), a.getTargetId(), 0, List.of()))
+                .collect(Collectors.toList());
+
+        var index = OverlapIndex.of(associations);
+        var transposed = index.transpose();
+
+        for (int minShared : new int[] {1, 3, 6}) {
+            var pairs = new TargetOverlapSearch(transposed).findPairs(minShared);
+
+            assertAll("Test disease pairs for min shared " + minShared
+                    , () -> assertEquals(index.getNumberOfDiseases(), transposed.getNumberOfTargets())
+                    , () -> assertEquals(index.getNumberOfTargets(), transposed.getNumberOfDiseases())
+                    , () -> assertEquals(bruteForce(swapped, minShared), asMap(pairs)));
+        }
+    }
+
+    @Test
+    @DisplayName("Test search with nothing over the threshold")
+    public void testEmptyResult() {
+        var associations = randomAssociations(50, 1000, 100, 3);
+
+        assertAll("Test empty results"
+                , () -> assertTrue(new TargetOverlapSearch(OverlapIndex.of(associations)).findPairs(5).isEmpty())
+                , () -> assertTrue(new TargetOverlapSearch(OverlapIndex.of(List.of())).findPairs(1).isEmpty()));
+    }
+}